@@ -0,0 +1,115 @@
+package io.notifer.jenkins;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Adaptive limit for the controller-wide {@link Bulkhead}, following the AIMD scheme.
+ *
+ * Every completed request is a sample of its round-trip latency. While latency stays close to
+ * the observed no-load baseline and requests succeed, the limit grows by about one per
+ * round trip of the whole window. A failed, throttled or markedly slower request shrinks it
+ * multiplicatively, at most once per round trip. The configured maximum is the ceiling.
+ */
+public final class AdaptiveConcurrencyLimit {
+    private static final Logger LOGGER = Logger.getLogger(AdaptiveConcurrencyLimit.class.getName());
+
+    static final int INITIAL_LIMIT = 20;
+    private static final int MIN_LIMIT = 1;
+    private static final double BACKOFF_RATIO = 0.9;
+    /** Latency above this multiple of the baseline counts as congestion */
+    private static final double LATENCY_TOLERANCE = 2.0;
+    /** How fast the baseline follows latencies above it, so it adapts to lasting changes */
+    private static final double BASELINE_DRIFT = 0.01;
+
+    private static final AdaptiveConcurrencyLimit INSTANCE = new AdaptiveConcurrencyLimit();
+
+    private boolean enabled;
+    private int maxLimit = Bulkhead.DEFAULT_MAX_CONCURRENT;
+    private double limit = INITIAL_LIMIT;
+    private double baselineNanos;
+    private long lastDecreaseNanos;
+
+    private AdaptiveConcurrencyLimit() {
+    }
+
+    static AdaptiveConcurrencyLimit get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Apply the global settings.
+     *
+     * @return the concurrency limit the global bulkhead should use now
+     */
+    synchronized int configure(boolean enabled, int maxLimit) {
+        if (enabled && !this.enabled) {
+            limit = Math.min(INITIAL_LIMIT, maxLimit);
+        }
+        this.enabled = enabled;
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        limit = Math.max(MIN_LIMIT, Math.min(limit, this.maxLimit));
+        return enabled ? (int) limit : this.maxLimit;
+    }
+
+    /**
+     * Record a completed request.
+     *
+     * @param latencyNanos round-trip time of the request
+     * @param overloaded   whether the request failed in a way that indicates an overloaded endpoint
+     */
+    void onSample(long latencyNanos, boolean overloaded) {
+        int before;
+        int after;
+        synchronized (this) {
+            if (!enabled) {
+                return;
+            }
+            before = (int) limit;
+
+            if (!overloaded) {
+                if (baselineNanos == 0 || latencyNanos < baselineNanos) {
+                    baselineNanos = latencyNanos;
+                } else {
+                    baselineNanos += (latencyNanos - baselineNanos) * BASELINE_DRIFT;
+                }
+            }
+
+            boolean congested = overloaded || latencyNanos > baselineNanos * LATENCY_TOLERANCE;
+            long now = System.nanoTime();
+            if (congested) {
+                // Requests of the same round trip see the same congestion; back off once for them
+                if (now - lastDecreaseNanos > latencyNanos) {
+                    limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+                    lastDecreaseNanos = now;
+                }
+            } else if (Bulkhead.global().getActive() * 2 >= limit) {
+                // Only grow while the limit is actually being used
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            after = (int) limit;
+        }
+
+        if (after != before) {
+            LOGGER.log(after < before ? Level.FINE : Level.FINEST,
+                    "Notifer concurrency limit changed from {0} to {1}", new Object[] {before, after});
+            Bulkhead.global().setMaxConcurrent(after);
+        }
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized int getLimit() {
+        return enabled ? (int) limit : maxLimit;
+    }
+
+    /**
+     * Observed no-load latency in milliseconds, 0 before the first sample.
+     */
+    public synchronized long getBaselineLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((long) baselineNanos);
+    }
+}
@@ -0,0 +1,337 @@
+package io.notifer.jenkins;
+
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+import jenkins.model.Jenkins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead capping the number of Notifer requests in flight.
+ *
+ * One bulkhead covers the whole controller; optionally each topic gets its own as well.
+ * Requests over the limit wait in a bounded queue without holding a thread and are started
+ * as soon as an earlier request completes, highest priority first (see {@link PriorityWaitQueue}).
+ * When the queue is full the request is rejected.
+ *
+ * Topic names come from build input, so topic bulkheads that have been idle for a while are
+ * dropped again, see {@link IdleTopicSweeper}.
+ */
+public final class Bulkhead {
+    static final int DEFAULT_MAX_CONCURRENT = 32;
+    static final int DEFAULT_MAX_QUEUED = 1000;
+    /** Topic bulkheads not used for this long are dropped once idle */
+    static final long TOPIC_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final Bulkhead GLOBAL = new Bulkhead("All topics");
+    private static final Map<String, Bulkhead> TOPICS = new ConcurrentHashMap<>();
+    private static volatile boolean configured;
+
+    private final String name;
+    /** Last time a request to the topic looked this bulkhead up */
+    private volatile long lastUsed;
+
+    private int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+    private int maxQueued = DEFAULT_MAX_QUEUED;
+    private int active;
+    private final PriorityWaitQueue waiting = new PriorityWaitQueue();
+    private long rejected;
+    private LoadShedding.Policy sheddingPolicy = LoadShedding.Policy.NONE;
+    private int sheddingWatermark = LoadShedding.DEFAULT_WATERMARK;
+    private final long[] shed = new long[PriorityWaitQueue.LEVELS];
+
+    /**
+     * Outcome of asking for a permit.
+     */
+    enum Admission {
+        /** The permit was granted, the caller goes ahead */
+        GRANTED,
+        /** The request waits for a permit, the callback runs once it is granted */
+        QUEUED,
+        /** The wait queue is full */
+        REJECTED,
+        /** The backlog is above the watermark and the low-priority request was shed */
+        SHED
+    }
+
+    Bulkhead(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the bulkheads a request to the topic has to pass, in acquisition order.
+     */
+    static List<Bulkhead> forTopic(String topic) {
+        Bulkhead global = global();
+        int perTopic = perTopicMaxConcurrent();
+        if (perTopic <= 0) {
+            return List.of(global);
+        }
+        // compute, not computeIfAbsent: the lookup must be atomic with evictIdle
+        Bulkhead bulkhead = TOPICS.compute(topic, (t, existing) -> {
+            if (existing == null) {
+                existing = new Bulkhead("Topic " + t);
+                applyGlobalConfiguration(existing, perTopic);
+            }
+            existing.lastUsed = System.currentTimeMillis();
+            return existing;
+        });
+        return List.of(bulkhead, global);
+    }
+
+    /**
+     * Drop topic bulkheads without active or waiting requests that have not been used for a while.
+     */
+    static void evictIdle(long now) {
+        for (String topic : TOPICS.keySet()) {
+            TOPICS.computeIfPresent(topic, (t, bulkhead) ->
+                    now - bulkhead.lastUsed >= TOPIC_IDLE_MILLIS && bulkhead.isIdle() ? null : bulkhead);
+        }
+    }
+
+    private synchronized boolean isIdle() {
+        return active == 0 && waiting.size() == 0;
+    }
+
+    /**
+     * All bulkheads, global one first, for display to administrators.
+     */
+    public static List<Bulkhead> all() {
+        List<Bulkhead> all = new ArrayList<>();
+        all.add(global());
+        all.addAll(TOPICS.values());
+        return all;
+    }
+
+    /**
+     * Re-apply the global settings to every bulkhead after the configuration changed.
+     */
+    static void reconfigureAll() {
+        configured = true;
+        applyGlobalConfiguration(GLOBAL, -1);
+        int perTopic = perTopicMaxConcurrent();
+        if (perTopic <= 0) {
+            // Topic bulkheads are no longer consulted; let the ones still in use drain
+            for (Bulkhead bulkhead : TOPICS.values()) {
+                bulkhead.configure(Integer.MAX_VALUE, bulkhead.getMaxQueued());
+            }
+            TOPICS.clear();
+            return;
+        }
+        for (Bulkhead bulkhead : TOPICS.values()) {
+            applyGlobalConfiguration(bulkhead, perTopic);
+        }
+    }
+
+    static Bulkhead global() {
+        if (!configured && Jenkins.getInstanceOrNull() != null) {
+            configured = true;
+            applyGlobalConfiguration(GLOBAL, -1);
+        }
+        return GLOBAL;
+    }
+
+    private static int perTopicMaxConcurrent() {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return 0;
+        }
+        return NotiferGlobalConfiguration.get().getBulkheadPerTopicMaxConcurrent();
+    }
+
+    private static void applyGlobalConfiguration(Bulkhead bulkhead, int maxConcurrent) {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return;
+        }
+        NotiferGlobalConfiguration config = NotiferGlobalConfiguration.get();
+        if (maxConcurrent <= 0) {
+            maxConcurrent = AdaptiveConcurrencyLimit.get().configure(config.isAdaptiveConcurrency(),
+                    config.getBulkheadMaxConcurrent());
+            // The backlog that matters for shedding is the controller-wide one
+            bulkhead.setShedding(config.getSheddingPolicy(), config.getSheddingWatermark());
+        }
+        bulkhead.configure(maxConcurrent, config.getBulkheadMaxQueued());
+        bulkhead.setAgingMillis(config.getPriorityAgingMillis());
+    }
+
+    synchronized void setShedding(LoadShedding.Policy policy, int watermark) {
+        this.sheddingPolicy = policy;
+        this.sheddingWatermark = Math.max(0, watermark);
+    }
+
+    synchronized void setAgingMillis(long agingMillis) {
+        waiting.setAgingMillis(agingMillis);
+    }
+
+    /**
+     * Change the concurrency limit, keeping the queue capacity.
+     */
+    void setMaxConcurrent(int maxConcurrent) {
+        int queued;
+        synchronized (this) {
+            queued = maxQueued;
+        }
+        configure(maxConcurrent, queued);
+    }
+
+    void configure(int maxConcurrent, int maxQueued) {
+        List<Runnable> granted = new ArrayList<>();
+        synchronized (this) {
+            this.maxConcurrent = Math.max(1, maxConcurrent);
+            this.maxQueued = Math.max(0, maxQueued);
+            // A raised limit admits waiting requests right away
+            while (active < this.maxConcurrent && waiting.size() > 0) {
+                active++;
+                granted.add(waiting.poll());
+            }
+        }
+        granted.forEach(Runnable::run);
+    }
+
+    /**
+     * Ask for a permit. If one is free it is granted right away and the callback is not used;
+     * otherwise the request is queued and the callback runs once a permit is handed to it, on the
+     * thread returning that permit, so it should only hand the work off. Every permit granted either
+     * way must eventually be followed by {@link #release()}.
+     *
+     * Once the backlog reaches the shedding watermark, low-priority requests may be shed instead:
+     * the arriving one, reported as {@link Admission#SHED}, or a waiting one, whose {@code onShed} is called.
+     *
+     * @param priority notification priority (1-5) deciding the position in the wait queue
+     * @param onShed   called when the request is shed while waiting, null if it must never be shed
+     */
+    Admission acquire(int priority, Runnable onPermit, Runnable onShed) {
+        priority = Math.max(1, Math.min(PriorityWaitQueue.LEVELS, priority));
+        PriorityWaitQueue.Waiter evicted = null;
+        boolean queued = false;
+        synchronized (this) {
+            if (active < maxConcurrent) {
+                active++;
+            } else {
+                if (onShed != null && sheddingPolicy != LoadShedding.Policy.NONE
+                        && waiting.size() >= sheddingWatermark) {
+                    boolean lowPriority = priority <= LoadShedding.LOW_PRIORITY;
+                    if (sheddingPolicy == LoadShedding.Policy.DROP_OLDEST_LOW_PRIORITY) {
+                        evicted = waiting.evictOldest(LoadShedding.LOW_PRIORITY);
+                    }
+                    if (evicted != null) {
+                        shed[evicted.getPriority() - 1]++;
+                    } else if (lowPriority) {
+                        shed[priority - 1]++;
+                        return Admission.SHED;
+                    }
+                }
+                if (waiting.size() >= maxQueued) {
+                    rejected++;
+                    return Admission.REJECTED;
+                }
+                waiting.add(priority, onPermit, onShed);
+                queued = true;
+            }
+        }
+        if (evicted != null) {
+            evicted.getOnShed().run();
+        }
+        return queued ? Admission.QUEUED : Admission.GRANTED;
+    }
+
+    /**
+     * Return a permit, handing it to the next waiting request if there is one.
+     */
+    void release() {
+        Runnable next = null;
+        synchronized (this) {
+            // After the limit was lowered, permits are retired until back under it
+            if (active <= maxConcurrent) {
+                next = waiting.poll();
+            }
+            if (next == null) {
+                active--;
+            }
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public synchronized int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    /**
+     * Waiting requests per priority, starting with priority 1.
+     */
+    public synchronized List<Integer> getQueuedByPriority() {
+        List<Integer> depths = new ArrayList<>(PriorityWaitQueue.LEVELS);
+        for (int depth : waiting.depths()) {
+            depths.add(depth);
+        }
+        return depths;
+    }
+
+    public synchronized LoadShedding.Policy getSheddingPolicy() {
+        return sheddingPolicy;
+    }
+
+    /**
+     * Requests shed since Jenkins started.
+     */
+    public synchronized long getShed() {
+        long total = 0;
+        for (long count : shed) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Shed requests per priority, starting with priority 1.
+     */
+    public synchronized List<Long> getShedByPriority() {
+        List<Long> counts = new ArrayList<>(PriorityWaitQueue.LEVELS);
+        for (long count : shed) {
+            counts.add(count);
+        }
+        return counts;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Periodically drops idle topic bulkheads, so per-branch or per-build topics do not accumulate.
+     */
+    @Extension
+    public static class IdleTopicSweeper extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void doRun() {
+            evictIdle(System.currentTimeMillis());
+        }
+    }
+}
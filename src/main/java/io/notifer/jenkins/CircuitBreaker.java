@@ -0,0 +1,237 @@
+package io.notifer.jenkins;
+
+import jenkins.model.Jenkins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker guarding a single Notifer API endpoint.
+ *
+ * Tracks the outcome of the last requests in a count-based sliding window. Once the failure
+ * rate in the window reaches the threshold the circuit opens and requests fail fast without
+ * touching the network. After the open duration a single probe is let through (half-open);
+ * its outcome closes the circuit again or re-opens it.
+ */
+public final class CircuitBreaker {
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    static final int DEFAULT_WINDOW_SIZE = 20;
+    static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    static final long DEFAULT_OPEN_DURATION_MILLIS = 30_000;
+
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    /**
+     * Circuit breaker states.
+     */
+    public enum State {
+        /** Requests flow normally */
+        CLOSED,
+        /** Requests fail fast */
+        OPEN,
+        /** A single probe request is allowed */
+        HALF_OPEN
+    }
+
+    private final String endpoint;
+
+    private int windowSize;
+    private int failureRateThreshold;
+    private long openDurationMillis;
+
+    private boolean[] window;
+    private int windowPosition;
+    private int windowCalls;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private CircuitBreaker(String endpoint) {
+        this.endpoint = endpoint;
+        configure(DEFAULT_WINDOW_SIZE, DEFAULT_FAILURE_RATE_THRESHOLD, DEFAULT_OPEN_DURATION_MILLIS);
+    }
+
+    /**
+     * Get the circuit breaker for an endpoint, creating it with the global settings if needed.
+     */
+    static CircuitBreaker forEndpoint(String endpoint) {
+        return BREAKERS.computeIfAbsent(endpoint, e -> {
+            CircuitBreaker breaker = new CircuitBreaker(e);
+            applyGlobalConfiguration(breaker);
+            return breaker;
+        });
+    }
+
+    /**
+     * All known circuit breakers, for display to administrators.
+     */
+    public static List<CircuitBreaker> all() {
+        return new ArrayList<>(BREAKERS.values());
+    }
+
+    /**
+     * Re-apply the global settings to every circuit breaker after the configuration changed.
+     */
+    static void reconfigureAll() {
+        for (CircuitBreaker breaker : BREAKERS.values()) {
+            applyGlobalConfiguration(breaker);
+        }
+    }
+
+    private static void applyGlobalConfiguration(CircuitBreaker breaker) {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return;
+        }
+        NotiferGlobalConfiguration config = NotiferGlobalConfiguration.get();
+        breaker.configure(config.getCircuitBreakerWindowSize(), config.getCircuitBreakerFailureRateThreshold(),
+                config.getCircuitBreakerOpenDurationMillis());
+    }
+
+    synchronized void configure(int windowSize, int failureRateThreshold, long openDurationMillis) {
+        if (window == null || window.length != windowSize) {
+            this.window = new boolean[Math.max(1, windowSize)];
+            this.windowPosition = 0;
+            this.windowCalls = 0;
+            this.windowFailures = 0;
+        }
+        this.windowSize = window.length;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * Ask for permission to send a request.
+     *
+     * @return false if the circuit is open and the request must fail fast
+     */
+    synchronized boolean tryAcquire() {
+        if (!isCallPermitted()) {
+            return false;
+        }
+        if (state == State.OPEN) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * Whether {@link #tryAcquire()} would currently let a request through, without claiming the probe.
+     */
+    synchronized boolean isCallPermitted() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return System.currentTimeMillis() - openedAt >= openDurationMillis;
+            case HALF_OPEN:
+            default:
+                return !probeInFlight;
+        }
+    }
+
+    /**
+     * Record a request that reached the endpoint and got a usable answer.
+     */
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            resetWindow();
+            transitionTo(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * Record a connection failure, timeout or server error.
+     */
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && windowCalls >= windowSize && getFailureRate() >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Release a permission without recording an outcome, e.g. when the request was cancelled.
+     */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCalls == windowSize) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowPosition] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % windowSize;
+    }
+
+    private void resetWindow() {
+        windowPosition = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        transitionTo(State.OPEN);
+    }
+
+    private void transitionTo(State newState) {
+        if (state != newState) {
+            LOGGER.log(newState == State.OPEN ? Level.WARNING : Level.INFO,
+                    "Notifer circuit breaker for {0} changed from {1} to {2}", new Object[] {endpoint, state, newState});
+            state = newState;
+        }
+    }
+
+    // --- Getters for display ---
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Failure rate in the sliding window, in percent.
+     */
+    public synchronized int getFailureRate() {
+        return windowCalls == 0 ? 0 : windowFailures * 100 / windowCalls;
+    }
+
+    public synchronized int getWindowCalls() {
+        return windowCalls;
+    }
+
+    public synchronized long getOpenedAt() {
+        return openedAt;
+    }
+}
@@ -0,0 +1,76 @@
+package io.notifer.jenkins;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbox journal writing through a {@link FileChannel} and forcing every record to disk
+ * before {@link #append} returns.
+ */
+final class FileOutboxJournal extends OutboxJournal {
+
+    /** Held across the force; unlike a monitor it does not pin the carrier of a virtual thread */
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private FileChannel channel;
+    private long active;
+    private long activeSize;
+
+    FileOutboxJournal(Path directory, long segmentBytes) throws IOException {
+        super(directory, segmentBytes);
+        // Never append to a segment left by a previous run, its tail may be torn
+        List<Long> existing = segments();
+        openSegment(existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1);
+    }
+
+    @Override
+    long append(byte[] body) throws IOException {
+        ByteBuffer record = frame(body);
+        lock.lock();
+        try {
+            if (activeSize > 0 && activeSize + record.remaining() > segmentBytes) {
+                channel.close();
+                openSegment(active + 1);
+            }
+            while (record.hasRemaining()) {
+                activeSize += channel.write(record);
+            }
+            channel.force(false);
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    long activeSegment() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void openSegment(long segment) throws IOException {
+        channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        active = segment;
+        activeSize = channel.size();
+    }
+}
@@ -0,0 +1,191 @@
+package io.notifer.jenkins;
+
+import hudson.Util;
+import jenkins.util.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shedding of low-priority notifications once the delivery backlog passes a watermark.
+ *
+ * The controller-wide {@link Bulkhead} decides which waiting or arriving notification is shed;
+ * this class carries out the configured {@link Policy} for it. Only priorities up to
+ * {@link #LOW_PRIORITY} are ever shed, so failure alerts keep their place in the queue.
+ */
+public final class LoadShedding {
+    private static final Logger LOGGER = Logger.getLogger(LoadShedding.class.getName());
+
+    static final int LOW_PRIORITY = 2;
+    static final int DEFAULT_WATERMARK = 200;
+    static final long SUMMARY_DELAY_MILLIS = 30_000;
+
+    private static final Map<String, Summary> OPEN_SUMMARIES = new ConcurrentHashMap<>();
+    private static final AtomicLong COLLAPSED = new AtomicLong();
+    private static final AtomicLong SUMMARIES_SENT = new AtomicLong();
+
+    /**
+     * What happens to low-priority notifications while the backlog is above the watermark.
+     */
+    public enum Policy {
+        /** Never shed */
+        NONE,
+        /** Drop the longest-waiting low-priority notification to make room */
+        DROP_OLDEST_LOW_PRIORITY,
+        /** Don't queue new low-priority notifications; send one summary with their count per topic instead */
+        COLLAPSE_LOW_PRIORITY,
+        /** Fail new low-priority notifications right away */
+        REJECT_NEW_LOW_PRIORITY
+    }
+
+    private LoadShedding() {
+    }
+
+    /**
+     * Shed a notification chosen by the bulkhead, completing its future according to the policy.
+     */
+    static void shed(Policy policy, NotiferClient client, String topic,
+                     CompletableFuture<NotiferClient.NotiferResponse> result) {
+        if (policy == Policy.COLLAPSE_LOW_PRIORITY) {
+            collapse(client, topic, result);
+            return;
+        }
+        LOGGER.log(Level.FINE, "Delivery backlog above watermark, shed a low-priority notification to {0}", topic);
+        result.completeExceptionally(new ShedException(
+                "Low-priority notification to " + topic + " dropped, the delivery backlog is too long"));
+    }
+
+    private static void collapse(NotiferClient client, String topic,
+                                 CompletableFuture<NotiferClient.NotiferResponse> result) {
+        COLLAPSED.incrementAndGet();
+        String key = topic + '|' + Util.getDigestOf(client.getToken());
+        while (true) {
+            Summary summary = OPEN_SUMMARIES.computeIfAbsent(key, k -> new Summary(k, client, topic));
+            int size = summary.add(result);
+            if (size == 1) {
+                schedule(summary);
+            }
+            if (size > 0) {
+                return;
+            }
+            // Lost the race against sending the summary, start a new one
+            OPEN_SUMMARIES.remove(key, summary);
+        }
+    }
+
+    private static void schedule(Summary summary) {
+        try {
+            Timer.get().schedule(() -> send(summary), SUMMARY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Jenkins is shutting down, settle the collapsed notifications right away
+            send(summary);
+        }
+    }
+
+    private static void send(Summary summary) {
+        OPEN_SUMMARIES.remove(summary.key, summary);
+        List<CompletableFuture<NotiferClient.NotiferResponse>> collapsed = summary.close();
+        int count = collapsed.size();
+        if (count == 0) {
+            return;
+        }
+
+        LOGGER.log(Level.INFO, "Sending a summary of {0} collapsed low-priority notifications to {1}",
+                new Object[] {count, summary.topic});
+        SUMMARIES_SENT.incrementAndGet();
+        String message = count + (count == 1 ? " low-priority notification was" : " low-priority notifications were")
+                + " collapsed into this summary while Notifer delivery was backlogged.";
+        summary.client.sendAsync(summary.topic, message, "Notifications collapsed", LOW_PRIORITY, null,
+                        NotiferClient.ResponseMode.FULL, null, false)
+                .whenComplete((response, error) -> {
+                    for (CompletableFuture<NotiferClient.NotiferResponse> future : collapsed) {
+                        // Only the summary was delivered, not the notification itself
+                        future.completeExceptionally(error != null ? error
+                                : new CollapsedException(summary.topic, response.getId()));
+                    }
+                });
+    }
+
+    /**
+     * Low-priority notifications collapsed into summaries since Jenkins started.
+     */
+    public static long getCollapsedCount() {
+        return COLLAPSED.get();
+    }
+
+    public static long getSummariesSent() {
+        return SUMMARIES_SENT.get();
+    }
+
+    /**
+     * Failure of a notification that was shed. Never retried.
+     */
+    public static class ShedException extends NotiferClient.NotiferException {
+        private static final long serialVersionUID = 1L;
+
+        ShedException(String message) {
+            super(message, (Throwable) null);
+        }
+    }
+
+    /**
+     * Outcome of a notification that was collapsed into a summary which was then delivered.
+     */
+    public static final class CollapsedException extends ShedException {
+        private static final long serialVersionUID = 1L;
+        private final String summaryId;
+
+        CollapsedException(String topic, String summaryId) {
+            super("Low-priority notification to " + topic + " collapsed into a summary, the delivery backlog was too long");
+            this.summaryId = summaryId;
+        }
+
+        /**
+         * ID of the delivered summary message, may be null.
+         */
+        public String getSummaryId() {
+            return summaryId;
+        }
+    }
+
+    private static final class Summary {
+        private final String key;
+        private final NotiferClient client;
+        private final String topic;
+        private final List<CompletableFuture<NotiferClient.NotiferResponse>> collapsed = new ArrayList<>();
+        private boolean closed;
+
+        Summary(String key, NotiferClient client, String topic) {
+            this.key = key;
+            this.client = client;
+            this.topic = topic;
+        }
+
+        /**
+         * @return Number of collapsed notifications, or 0 if the summary was already sent
+         */
+        synchronized int add(CompletableFuture<NotiferClient.NotiferResponse> result) {
+            if (closed) {
+                return 0;
+            }
+            collapsed.add(result);
+            return collapsed.size();
+        }
+
+        synchronized List<CompletableFuture<NotiferClient.NotiferResponse>> close() {
+            if (closed) {
+                return new ArrayList<>();
+            }
+            closed = true;
+            return collapsed;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package io.notifer.jenkins;
+
+import jenkins.util.Timer;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Outbox journal appending into memory-mapped, pre-allocated segments with group commit.
+ *
+ * An append is a memory copy into the mapped segment. Records are forced to disk once
+ * {@code syncBatchSize} of them are pending, and at the latest every {@code syncIntervalMillis}.
+ * Unforced records live in the page cache: they survive a Jenkins crash and are only lost if
+ * the operating system goes down within that window.
+ *
+ * A segment is unmapped as soon as appends move on to the next one, so that compaction can
+ * delete it right away; Windows refuses to delete a file that is still mapped.
+ */
+final class MappedOutboxJournal extends OutboxJournal {
+    private static final Logger LOGGER = Logger.getLogger(MappedOutboxJournal.class.getName());
+
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Cannot unmap Notifer outbox segments explicitly", e);
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    private final int syncBatchSize;
+    private final ScheduledFuture<?> syncTask;
+    /*
+     * Locks rather than monitors: both are held across disk I/O, which would pin the carrier of a
+     * virtual thread. appendLock guards appends, syncLock is held while forcing so a segment is never
+     * unmapped during a force. syncLock is taken after appendLock, never before.
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    // Written while holding both locks
+    private volatile MappedByteBuffer mapped;
+    // Guarded by appendLock
+    private long active;
+    private int unsynced;
+
+    MappedOutboxJournal(Path directory, long segmentBytes, long syncIntervalMillis, int syncBatchSize)
+            throws IOException {
+        super(directory, segmentBytes);
+        this.syncBatchSize = Math.max(1, syncBatchSize);
+        // Never append to a segment left by a previous run, its tail may be torn
+        List<Long> existing = segments();
+        this.active = existing.isEmpty() ? 0 : existing.get(existing.size() - 1);
+
+        ScheduledFuture<?> task = null;
+        try {
+            task = Timer.get().scheduleWithFixedDelay(this::syncQuietly,
+                    syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "Timer unavailable, Notifer outbox syncs on batch size only", e);
+        }
+        this.syncTask = task;
+    }
+
+    @Override
+    long append(byte[] body) throws IOException {
+        ByteBuffer record = frame(body);
+        MappedByteBuffer toSync = null;
+        long segment;
+        appendLock.lock();
+        try {
+            if (mapped == null || mapped.remaining() < record.remaining()) {
+                roll(record.remaining());
+            }
+            mapped.put(record);
+            segment = active;
+            if (++unsynced >= syncBatchSize) {
+                unsynced = 0;
+                toSync = mapped;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        if (toSync != null) {
+            force(toSync);
+        }
+        return segment;
+    }
+
+    @Override
+    long activeSegment() {
+        appendLock.lock();
+        try {
+            return active;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Force pending records of the active segment to disk.
+     */
+    void sync() {
+        MappedByteBuffer toSync;
+        appendLock.lock();
+        try {
+            if (unsynced == 0 || mapped == null) {
+                return;
+            }
+            unsynced = 0;
+            toSync = mapped;
+        } finally {
+            appendLock.unlock();
+        }
+        force(toSync);
+    }
+
+    private void force(MappedByteBuffer buffer) {
+        syncLock.lock();
+        try {
+            // A segment rolled over in the meantime was forced and unmapped by roll()
+            if (buffer == mapped) {
+                buffer.force();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to sync the Notifer outbox", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (syncTask != null) {
+            syncTask.cancel(false);
+        }
+        sync();
+        appendLock.lock();
+        try {
+            retire();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void roll(int needed) throws IOException {
+        retire();
+        long next = active + 1;
+        try (FileChannel channel = FileChannel.open(segmentPath(next),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Pre-allocate the whole segment; unused space stays zero and ends the segment on replay
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, needed));
+        }
+        active = next;
+        unsynced = 0;
+    }
+
+    /**
+     * Force and unmap the active segment. Called while holding appendLock.
+     */
+    private void retire() {
+        MappedByteBuffer buffer = mapped;
+        if (buffer == null) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            buffer.force();
+            mapped = null;
+            unmap(buffer);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Release the mapping now instead of when the buffer is garbage collected.
+     * The buffer must not be accessed afterwards.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Failed to unmap a Notifer outbox segment", e);
+        }
+    }
+}
@@ -2,35 +2,58 @@ package io.notifer.jenkins;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import hudson.ProxyConfiguration;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import jenkins.model.Jenkins;
+import jenkins.util.Timer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * HTTP client for communicating with Notifer API.
  * Uses Jenkins ProxyConfiguration to support corporate proxies.
+ * The underlying connection pool is shared process-wide, see {@link NotiferHttpClients}.
  */
 public class NotiferClient implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final Logger LOGGER = Logger.getLogger(NotiferClient.class.getName());
-    private static final int TIMEOUT_SECONDS = 30;
+    static final int TIMEOUT_SECONDS = 30;
     private static final Gson GSON = new GsonBuilder().create();
 
-    /** Notifer API base URL */
+    /** Default Notifer API base URL, used unless other endpoints are configured, see {@link NotiferEndpoints} */
     public static final String API_URL = "https://app.notifer.io";
 
+    /** Header letting the server recognize duplicates of the same notification */
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /** Endpoints that answered a gzip request body with 415 Unsupported Media Type */
+    private static final Set<String> GZIP_UNSUPPORTED = ConcurrentHashMap.newKeySet();
+
     private final String token;
 
     /**
@@ -42,6 +65,10 @@ public class NotiferClient implements Serializable {
         this.token = token;
     }
 
+    String getToken() {
+        return token;
+    }
+
     /**
      * Send a notification to a topic.
      *
@@ -55,82 +82,577 @@ public class NotiferClient implements Serializable {
      */
     public NotiferResponse send(String topic, String message, String title, int priority, List<String> tags)
             throws NotiferException {
+        return send(topic, message, title, priority, tags, ResponseMode.FULL);
+    }
+
+    /**
+     * Send a notification to a topic, parsing only as much of the response as requested.
+     *
+     * @param topic    Topic name
+     * @param message  Message content
+     * @param title    Optional title (can be null)
+     * @param priority Priority 1-5 (default 3)
+     * @param tags     Optional list of tags (can be null or empty)
+     * @param mode     How much of the response body to parse
+     * @return Response from the server
+     * @throws NotiferException if the request fails
+     */
+    public NotiferResponse send(String topic, String message, String title, int priority, List<String> tags,
+                                ResponseMode mode) throws NotiferException {
+        return send(topic, message, title, priority, tags, mode, null);
+    }
+
+    /**
+     * Send a notification to a topic at most once per idempotency key.
+     *
+     * @param idempotencyKey Key identifying the notification, see {@link #sendAsync(String, String, String, int, List, ResponseMode, String)}
+     * @return Response from the server, or of the earlier send with the same key
+     * @throws NotiferException if the request fails
+     */
+    public NotiferResponse send(String topic, String message, String title, int priority, List<String> tags,
+                                ResponseMode mode, String idempotencyKey) throws NotiferException {
+
+        CompletableFuture<NotiferResponse> future =
+                sendAsync(topic, message, title, priority, tags, mode, idempotencyKey);
+
+        try {
+            return future.get();
+
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw toNotiferException(e);
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NotiferException) {
+                throw (NotiferException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw toNotiferException(cause instanceof Exception ? (Exception) cause : e);
+        }
+    }
+
+    /**
+     * Send a notification to a topic without blocking the calling thread.
+     *
+     * The returned future completes with the server response, or exceptionally with a
+     * {@link NotiferException} using the same error mapping as {@link #send}.
+     * Failed attempts are retried according to the configured {@link RetryPolicy}; the
+     * backoff is scheduled on the Jenkins timer, so no thread is held while waiting.
+     * Attempts are paced by the topic token's {@link TokenBucketRateLimiter} the same way
+     * and run on the {@link NotiferDeliveryExecutor}, not on the caller's or the timer's threads.
+     * Cancelling the future aborts the current HTTP exchange and any further retries.
+     *
+     * @param topic    Topic name
+     * @param message  Message content
+     * @param title    Optional title (can be null)
+     * @param priority Priority 1-5 (default 3)
+     * @param tags     Optional list of tags (can be null or empty)
+     * @return Future completed with the response from the server
+     */
+    public CompletableFuture<NotiferResponse> sendAsync(String topic, String message, String title, int priority,
+                                                        List<String> tags) {
+        return sendAsync(topic, message, title, priority, tags, ResponseMode.FULL);
+    }
+
+    /**
+     * Send a notification to a topic without blocking the calling thread,
+     * parsing only as much of the response as requested.
+     *
+     * @param topic    Topic name
+     * @param message  Message content
+     * @param title    Optional title (can be null)
+     * @param priority Priority 1-5 (default 3)
+     * @param tags     Optional list of tags (can be null or empty)
+     * @param mode     How much of the response body to parse
+     * @return Future completed with the response from the server
+     * @see #sendAsync(String, String, String, int, List)
+     */
+    public CompletableFuture<NotiferResponse> sendAsync(String topic, String message, String title, int priority,
+                                                        List<String> tags, ResponseMode mode) {
+        return sendAsync(topic, message, title, priority, tags, mode, null, true);
+    }
+
+    /**
+     * Send a notification to a topic without blocking the calling thread, at most once per idempotency key.
+     *
+     * The key is sent as the {@code Idempotency-Key} header of every attempt. While an earlier send
+     * with the same key to the same topic is in flight, or has been delivered within the last day,
+     * its result is returned instead of sending again.
+     *
+     * @param idempotencyKey Key identifying the notification, or null to send unconditionally
+     * @see #sendAsync(String, String, String, int, List, ResponseMode)
+     */
+    public CompletableFuture<NotiferResponse> sendAsync(String topic, String message, String title, int priority,
+                                                        List<String> tags, ResponseMode mode, String idempotencyKey) {
+        return sendAsync(topic, message, title, priority, tags, mode, idempotencyKey, true);
+    }
+
+    /**
+     * @param sheddable whether a backlog may shed the notification, see {@link LoadShedding}
+     */
+    CompletableFuture<NotiferResponse> sendAsync(String topic, String message, String title, int priority,
+                                                 List<String> tags, ResponseMode mode, String idempotencyKey,
+                                                 boolean sheddable) {
+        CompletableFuture<NotiferResponse> result = new CompletableFuture<>();
+        // Most attempts go to the preferred endpoint, build its URI now so a bad topic fails right away
+        String endpoint = NotiferEndpoints.configured().get(0);
+        URI uri;
+        try {
+            uri = topicUri(endpoint, topic);
+        } catch (NotiferException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        if (idempotencyKey != null) {
+            CompletableFuture<NotiferResponse> earlier = NotiferIdempotency.claim(topic + '|' + idempotencyKey, result);
+            if (earlier != null) {
+                LOGGER.log(Level.FINE, "Notification {0} to {1} was already sent, not sending it again",
+                        new Object[] {idempotencyKey, topic});
+                // Cancelling the caller's copy must not cancel the earlier send
+                return earlier.copy();
+            }
+        }
+
+        try {
+            byte[] payload = NotiferPayloadWriter.write(message, title, priority, tags);
+            LOGGER.log(Level.FINE, "Sending notification to topic {0}", topic);
+            String key = idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString();
+            Call call = new Call(topic, new Target(endpoint, uri), priority, sheddable, key, payload, RetryPolicy.current(), mode, result);
+            execute(call, () -> pace(call, 1));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Run a step of the call on the delivery executor, failing the call if it cannot run.
+     *
+     * @return false if the step was rejected and the call failed
+     */
+    private boolean execute(Call call, Runnable step) {
+        try {
+            NotiferDeliveryExecutor.get().execute(() -> {
+                try {
+                    step.run();
+                } catch (RuntimeException e) {
+                    call.result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Jenkins is shutting down
+            call.result.completeExceptionally(toNotiferException(e));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the topic token's rate limiter before making an attempt.
+     */
+    private void pace(Call call, int attempt) {
+        long delay = TokenBucketRateLimiter.reserve(token);
+        if (delay <= 0) {
+            attempt(call, attempt);
+            return;
+        }
+
+        LOGGER.log(Level.FINE, "Rate limit reached for {0}, delaying attempt by {1} ms",
+                new Object[] {call.topic, delay});
+        try {
+            Timer.get().schedule(() -> execute(call, () -> attempt(call, attempt)), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            call.result.completeExceptionally(toNotiferException(e));
+        }
+    }
+
+    private void attempt(Call call, int attempt) {
+        if (call.result.isDone()) {
+            // Cancelled while waiting for the backoff
+            return;
+        }
+        admit(call, attempt, Bulkhead.forTopic(call.topic), 0);
+    }
+
+    /**
+     * Pass the bulkheads in order, then make the attempt. Permits are returned once the exchange completes.
+     */
+    private void admit(Call call, int attempt, List<Bulkhead> bulkheads, int index) {
+        if (index == bulkheads.size()) {
+            exchange(call, attempt, () -> release(bulkheads, index));
+            return;
+        }
+
+        Bulkhead bulkhead = bulkheads.get(index);
+        Runnable onShed = call.sheddable ? () -> shed(call, bulkhead, bulkheads, index) : null;
+        Bulkhead.Admission admission = bulkhead.acquire(call.priority, () -> {
+            // Granted on the thread that returned the permit, continue on the delivery executor
+            if (call.result.isDone() || !execute(call, () -> admit(call, attempt, bulkheads, index + 1))) {
+                // Cancelled while waiting for a permit, or Jenkins is shutting down
+                release(bulkheads, index + 1);
+            }
+        }, onShed);
+        if (admission == Bulkhead.Admission.GRANTED) {
+            admit(call, attempt, bulkheads, index + 1);
+        } else if (admission == Bulkhead.Admission.REJECTED) {
+            release(bulkheads, index);
+            retryOrFail(call, attempt, new NotiferException("Too many notifications in flight, "
+                    + bulkhead.getName() + " queue is full", (Throwable) null));
+        } else if (admission == Bulkhead.Admission.SHED) {
+            shed(call, bulkhead, bulkheads, index);
+        }
+    }
+
+    /**
+     * Give up a call the bulkhead shed, while queued or on arrival, returning the permits it already holds.
+     */
+    private void shed(Call call, Bulkhead bulkhead, List<Bulkhead> bulkheads, int index) {
+        release(bulkheads, index);
+        LoadShedding.shed(bulkhead.getSheddingPolicy(), this, call.topic, call.result);
+    }
 
-        String url = API_URL + "/" + topic;
-        Map<String, Object> payload = buildPayload(message, title, priority, tags);
+    private static void release(List<Bulkhead> bulkheads, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            bulkheads.get(i).release();
+        }
+    }
 
-        LOGGER.log(Level.FINE, "Sending notification to {0}", url);
+    private void exchange(Call call, int attempt, Runnable releasePermits) {
+        CompletableFuture<NotiferResponse> result = call.result;
+        String endpoint = NotiferEndpoints.select(call.failedEndpoint);
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint(endpoint);
+        if (!breaker.tryAcquire()) {
+            releasePermits.run();
+            call.failedEndpoint = endpoint;
+            retryOrFail(call, attempt, new NotiferException(
+                    "Circuit breaker for " + endpoint + " is open, notification not sent", (Throwable) null));
+            return;
+        }
 
+        boolean compressed = shouldCompress(call, endpoint);
+        AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.get();
+        long started = System.nanoTime();
+        CompletableFuture<HttpResponse<ResponseBody>> exchange;
         try {
-            HttpClient client = getHttpClient();
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(TIMEOUT_SECONDS))
-                    .header("Content-Type", "application/json")
-                    .header("X-Topic-Token", token)
-                    .POST(HttpRequest.BodyPublishers.ofString(GSON.toJson(payload)))
-                    .build();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            int statusCode = response.statusCode();
-            String responseBody = response.body();
-
-            if (statusCode >= 200 && statusCode < 300) {
-                LOGGER.log(Level.FINE, "Notification sent successfully: {0}", responseBody);
-                return GSON.fromJson(responseBody, NotiferResponse.class);
+            exchange = RequestHedging.send(getHttpClient(), buildRequest(call, endpoint, compressed),
+                    ResponseBody.handler(call.mode), call.priority >= RequestHedging.HEDGED_PRIORITY);
+        } catch (RuntimeException e) {
+            breaker.onIgnored();
+            releasePermits.run();
+            throw e;
+        }
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+
+        exchange.whenComplete((response, error) -> {
+            long latencyNanos = System.nanoTime() - started;
+            NotiferConnectionWarmer.touch();
+            releasePermits.run();
+            Throwable failure;
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (cause instanceof CancellationException) {
+                    breaker.onIgnored();
+                } else {
+                    breaker.onFailure();
+                    limit.onSample(latencyNanos, true);
+                    call.failedEndpoint = endpoint;
+                }
+                failure = cause instanceof IOException ? toNotiferException((IOException) cause) : cause;
+            } else if (compressed && response.statusCode() == 415) {
+                RequestHedging.recordLatency(latencyNanos);
+                NotiferEndpoints.recordLatency(endpoint, latencyNanos);
+                // The endpoint does not accept compressed bodies, remember it and resend right away
+                breaker.onSuccess();
+                limit.onSample(latencyNanos, false);
+                LOGGER.log(Level.INFO, "{0} rejected a gzip request body, sending uncompressed from now on", endpoint);
+                GZIP_UNSUPPORTED.add(endpoint);
+                execute(call, () -> attempt(call, attempt));
+                return;
             } else {
-                String errorMessage = String.format("Notifer API returned status %d: %s", statusCode, responseBody);
-                LOGGER.log(Level.WARNING, errorMessage);
-                throw new NotiferException(errorMessage, statusCode);
+                int status = response.statusCode();
+                RequestHedging.recordLatency(latencyNanos);
+                NotiferEndpoints.recordLatency(endpoint, latencyNanos);
+                if (isEndpointFailure(status)) {
+                    breaker.onFailure();
+                    call.failedEndpoint = endpoint;
+                } else {
+                    breaker.onSuccess();
+                }
+                limit.onSample(latencyNanos, isEndpointFailure(status) || status == 429);
+                try {
+                    result.complete(handleResponse(response));
+                    return;
+                } catch (NotiferException | RuntimeException e) {
+                    failure = e;
+                }
             }
+            retryOrFail(call, attempt, failure);
+        });
+    }
+
+    private void retryOrFail(Call call, int attempt, Throwable failure) {
+        CompletableFuture<NotiferResponse> result = call.result;
+        long delay = call.policy.nextDelayMillis(attempt, failure);
+        if (delay < 0 || result.isDone()) {
+            logFailure(failure);
+            result.completeExceptionally(failure);
+            return;
+        }
+
+        LOGGER.log(Level.FINE, "Attempt {0} of {1} to {2} failed, retrying in {3} ms: {4}", new Object[] {
+                attempt, call.policy.getMaxAttempts(), call.topic, delay, failure.getMessage()});
+        try {
+            Timer.get().schedule(() -> execute(call, () -> pace(call, attempt + 1)), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Jenkins is shutting down
+            logFailure(failure);
+            result.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Status codes that count against the endpoint's circuit breaker.
+     * Client errors and rate limiting mean the endpoint is up.
+     */
+    private static boolean isEndpointFailure(int statusCode) {
+        return statusCode == 408 || statusCode >= 500;
+    }
+
+    private HttpRequest buildRequest(Call call, String endpoint, boolean compressed) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(call.uri(endpoint))
+                .timeout(Duration.ofSeconds(TIMEOUT_SECONDS))
+                .header("Content-Type", "application/json")
+                .header("X-Topic-Token", token)
+                .header(IDEMPOTENCY_KEY_HEADER, call.idempotencyKey);
+
+        if (compressed) {
+            builder.header("Content-Encoding", "gzip")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(call.gzipPayload));
+        } else {
+            builder.POST(HttpRequest.BodyPublishers.ofByteArray(call.payload));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Compress the body if it is above the configured threshold and the endpoint accepts gzip.
+     * The compressed body is computed once per call and only used if it is actually smaller.
+     */
+    private static boolean shouldCompress(Call call, String endpoint) {
+        if (GZIP_UNSUPPORTED.contains(endpoint) || Jenkins.getInstanceOrNull() == null) {
+            return false;
+        }
+        int threshold = NotiferGlobalConfiguration.get().getCompressionThresholdBytes();
+        if (threshold <= 0 || call.payload.length < threshold) {
+            return false;
+        }
+        if (call.gzipPayload == null) {
+            call.gzipPayload = gzip(call.payload);
+        }
+        return call.gzipPayload.length < call.payload.length;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            // Cannot happen with an in-memory stream
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
 
-        } catch (IOException | InterruptedException e) {
-            String errorMessage = "Failed to send notification: " + e.getMessage();
-            LOGGER.log(Level.SEVERE, errorMessage, e);
-            if (e instanceof InterruptedException) {
-                Thread.currentThread().interrupt();
+    private NotiferResponse handleResponse(HttpResponse<ResponseBody> response) throws NotiferException {
+        int statusCode = response.statusCode();
+        ResponseBody body = response.body();
+
+        if (statusCode >= 200 && statusCode < 300) {
+            LOGGER.log(Level.FINE, "Notification sent successfully: {0}", body.response);
+            return body.response;
+        } else {
+            String errorMessage = String.format("Notifer API returned status %d: %s", statusCode, body.error);
+            throw new NotiferException(errorMessage, statusCode, RetryPolicy.parseRetryAfter(response.headers()));
+        }
+    }
+
+    /**
+     * Build the URI a notification to the topic is posted to.
+     *
+     * @throws NotiferException if the topic name cannot be used as a single path segment
+     */
+    static URI topicUri(String endpoint, String topic) throws NotiferException {
+        if (topic == null || topic.isEmpty() || topic.indexOf('/') >= 0) {
+            throw new NotiferException("Invalid topic name: " + topic, (Throwable) null);
+        }
+        try {
+            URI uri = new URI(endpoint + "/" + topic);
+            if (uri.getRawQuery() != null || uri.getRawFragment() != null) {
+                throw new NotiferException("Invalid topic name: " + topic, (Throwable) null);
             }
-            throw new NotiferException(errorMessage, e);
+            return uri;
+        } catch (URISyntaxException e) {
+            throw new NotiferException("Invalid topic name: " + topic, e);
+        }
+    }
+
+    private NotiferException toNotiferException(Exception e) {
+        return new NotiferException("Failed to send notification: " + e.getMessage(), e);
+    }
+
+    private void logFailure(Throwable failure) {
+        if (failure instanceof NotiferException && ((NotiferException) failure).getStatusCode() > 0) {
+            LOGGER.log(Level.WARNING, failure.getMessage());
+        } else {
+            LOGGER.log(Level.SEVERE, failure.getMessage(), failure);
         }
     }
 
     /**
-     * Get an HTTP client configured with Jenkins proxy settings if available.
+     * Get the shared HTTP client configured with Jenkins proxy settings if available.
      */
     private HttpClient getHttpClient() {
-        Jenkins jenkins = Jenkins.getInstanceOrNull();
-        if (jenkins != null) {
-            ProxyConfiguration proxy = jenkins.proxy;
-            if (proxy != null) {
-                // Use Jenkins proxy-aware HTTP client
-                return proxy.newHttpClient();
+        return NotiferHttpClients.get();
+    }
+
+    /**
+     * How much of a successful response body to parse.
+     */
+    public enum ResponseMode {
+        /** Parse the full response, including the echoed message and tags */
+        FULL,
+        /** Stream through the body and keep only the message ID */
+        ID_ONLY,
+        /** Discard the body without reading it into memory */
+        DISCARD
+    }
+
+    /**
+     * State shared by all attempts of one send.
+     */
+    private static final class Call {
+        private final String topic;
+        private final int priority;
+        /** URI of the endpoint the latest attempt went to, validated when the call was created */
+        private volatile Target target;
+        private final boolean sheddable;
+        /** Shared by every attempt and hedge of the notification */
+        private final String idempotencyKey;
+        private final byte[] payload;
+        private final RetryPolicy policy;
+        private final ResponseMode mode;
+        private final CompletableFuture<NotiferResponse> result;
+        private volatile byte[] gzipPayload;
+
+        /** Endpoint that failed the latest attempt, avoided by the next one */
+        private volatile String failedEndpoint;
+
+        Call(String topic, Target target, int priority, boolean sheddable, String idempotencyKey, byte[] payload,
+             RetryPolicy policy, ResponseMode mode, CompletableFuture<NotiferResponse> result) {
+            this.idempotencyKey = idempotencyKey;
+            this.topic = topic;
+            this.target = target;
+            this.priority = priority;
+            this.sheddable = sheddable;
+            this.payload = payload;
+            this.policy = policy;
+            this.mode = mode;
+            this.result = result;
+        }
+
+        /**
+         * URI of the topic at the endpoint. Endpoints are valid URLs and the topic was checked
+         * by {@link #topicUri}, so this cannot fail.
+         */
+        URI uri(String endpoint) {
+            Target current = target;
+            if (!current.endpoint.equals(endpoint)) {
+                current = new Target(endpoint, URI.create(endpoint + "/" + topic));
+                target = current;
             }
+            return current.uri;
         }
-        // Fallback to default client if no proxy configured
-        return HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(TIMEOUT_SECONDS))
-                .followRedirects(HttpClient.Redirect.NORMAL)
-                .build();
     }
 
-    private Map<String, Object> buildPayload(String message, String title, int priority, List<String> tags) {
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("message", message);
+    /**
+     * An endpoint and the URI of a topic there.
+     */
+    private static final class Target {
+        private final String endpoint;
+        private final URI uri;
 
-        if (title != null && !title.isEmpty()) {
-            payload.put("title", title);
+        Target(String endpoint, URI uri) {
+            this.endpoint = endpoint;
+            this.uri = uri;
         }
+    }
 
-        // Clamp priority to valid range
-        priority = Math.max(1, Math.min(5, priority));
-        payload.put("priority", priority);
+    /**
+     * Parsed response body: the response on success, the raw text on error.
+     */
+    private static final class ResponseBody {
+        private static final ResponseBody EMPTY = new ResponseBody(new NotiferResponse(), null);
+
+        private final NotiferResponse response;
+        private final String error;
+
+        private ResponseBody(NotiferResponse response, String error) {
+            this.response = response;
+            this.error = error;
+        }
 
-        if (tags != null && !tags.isEmpty()) {
-            payload.put("tags", tags);
+        static HttpResponse.BodyHandler<ResponseBody> handler(ResponseMode mode) {
+            return info -> {
+                if (info.statusCode() < 200 || info.statusCode() >= 300) {
+                    return HttpResponse.BodySubscribers.mapping(
+                            HttpResponse.BodyHandlers.ofString().apply(info), text -> new ResponseBody(null, text));
+                }
+                switch (mode) {
+                    case DISCARD:
+                        return HttpResponse.BodySubscribers.replacing(EMPTY);
+                    case ID_ONLY:
+                        return HttpResponse.BodySubscribers.mapping(
+                                HttpResponse.BodySubscribers.ofByteArray(), bytes -> new ResponseBody(parseId(bytes), null));
+                    case FULL:
+                    default:
+                        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodyHandlers.ofString().apply(info),
+                                text -> new ResponseBody(GSON.fromJson(text, NotiferResponse.class), null));
+                }
+            };
         }
 
-        return payload;
+        /**
+         * Read the "id" field with a streaming reader, stopping as soon as it is found.
+         */
+        private static NotiferResponse parseId(byte[] body) {
+            try (JsonReader reader = new JsonReader(
+                    new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+                if (body.length == 0 || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    return new NotiferResponse();
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if ("id".equals(name) && reader.peek() != JsonToken.NULL) {
+                        return new NotiferResponse(reader.nextString());
+                    }
+                    reader.skipValue();
+                }
+                return new NotiferResponse();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 
     /**
@@ -145,6 +667,13 @@ public class NotiferClient implements Serializable {
         private int priority;
         private List<String> tags;
 
+        NotiferResponse() {
+        }
+
+        NotiferResponse(String id) {
+            this.id = id;
+        }
+
         public String getId() {
             return id;
         }
@@ -177,19 +706,33 @@ public class NotiferClient implements Serializable {
     public static class NotiferException extends Exception {
         private static final long serialVersionUID = 1L;
         private final int statusCode;
+        private final long retryAfterMillis;
 
         public NotiferException(String message, int statusCode) {
+            this(message, statusCode, -1);
+        }
+
+        public NotiferException(String message, int statusCode, long retryAfterMillis) {
             super(message);
             this.statusCode = statusCode;
+            this.retryAfterMillis = retryAfterMillis;
         }
 
         public NotiferException(String message, Throwable cause) {
             super(message, cause);
             this.statusCode = -1;
+            this.retryAfterMillis = -1;
         }
 
         public int getStatusCode() {
             return statusCode;
         }
+
+        /**
+         * Delay requested by the server through the Retry-After header, or -1 if none.
+         */
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
     }
 }
@@ -0,0 +1,121 @@
+package io.notifer.jenkins;
+
+import hudson.Extension;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.PeriodicWork;
+import jenkins.model.Jenkins;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps connections to the Notifer API endpoints open ahead of the first notification.
+ *
+ * A cheap {@code HEAD} request pays for DNS, TCP, TLS and HTTP/2 setup at startup, and while
+ * notifications are being sent, after the HTTP client was rebuilt or when the connection has
+ * been idle for a while, so that the pool does not go cold between them. Once nothing has been
+ * sent for {@link #ACTIVE_MILLIS} the connection is left to close. Warm-up is asynchronous and
+ * never delays Jenkins.
+ */
+public final class NotiferConnectionWarmer {
+    private static final Logger LOGGER = Logger.getLogger(NotiferConnectionWarmer.class.getName());
+
+    private static final long WARM_UP_TIMEOUT_SECONDS = 10;
+    /** Re-warm once no request completed for this long; below common proxy idle timeouts */
+    static final long IDLE_MILLIS = TimeUnit.SECONDS.toMillis(50);
+    /** Keep warm only this long after the last notification was sent */
+    static final long ACTIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /** Last time a notification was sent */
+    private static volatile long lastSent;
+    /** Last time the connection was used, by a notification or a warm-up */
+    private static volatile long lastActivity;
+
+    private NotiferConnectionWarmer() {
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED, fatal = false)
+    public static void warmUpOnStartup() {
+        if (isEnabled()) {
+            warm();
+        }
+    }
+
+    /**
+     * Record that a notification was just sent.
+     */
+    static void touch() {
+        long now = System.currentTimeMillis();
+        lastSent = now;
+        lastActivity = now;
+    }
+
+    /**
+     * Warm up again if enabled and a notification was sent recently, e.g. after the HTTP client was rebuilt.
+     */
+    static void rewarm() {
+        if (isEnabled() && System.currentTimeMillis() - lastSent < ACTIVE_MILLIS) {
+            warm();
+        }
+    }
+
+    /**
+     * Open a connection to every configured Notifer API endpoint without waiting for it.
+     */
+    static void warm() {
+        lastActivity = System.currentTimeMillis();
+        for (String endpoint : NotiferEndpoints.configured()) {
+            warm(endpoint);
+        }
+    }
+
+    private static void warm(String endpoint) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(endpoint + "/"))
+                .timeout(Duration.ofSeconds(WARM_UP_TIMEOUT_SECONDS))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        try {
+            NotiferHttpClients.get().sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            LOGGER.log(Level.FINE, "Warming up the connection to " + endpoint + " failed", error);
+                        } else {
+                            LOGGER.log(Level.FINE, "Warmed up the connection to {0} ({1})",
+                                    new Object[] {endpoint, response.version()});
+                        }
+                    });
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "Could not warm up the connection to " + endpoint, e);
+        }
+    }
+
+    private static boolean isEnabled() {
+        return Jenkins.getInstanceOrNull() != null && NotiferGlobalConfiguration.get().isConnectionWarmUp();
+    }
+
+    /**
+     * Re-warms the connection when it has been idle since a recent notification.
+     */
+    @Extension
+    public static class KeepWarm extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return TimeUnit.SECONDS.toMillis(30);
+        }
+
+        @Override
+        protected void doRun() {
+            if (System.currentTimeMillis() - lastActivity >= IDLE_MILLIS) {
+                rewarm();
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package io.notifer.jenkins;
+
+import com.cloudbees.plugins.credentials.CredentialsMatchers;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Saveable;
+import hudson.model.User;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import org.jenkinsci.plugins.plaincredentials.StringCredentials;
+import org.springframework.security.core.Authentication;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cached lookup of the topic token credentials used by {@link NotiferStep} and {@link NotiferNotifier}.
+ *
+ * Looking up credentials walks every credential store visible from the item. Results are kept
+ * for a short time per item, authentication and credentials ID, and dropped as soon as a
+ * credential store that may have provided them is saved: all of them for the Jenkins store,
+ * those of items inside a folder for the folder, those of a user's authentication for the user.
+ * Folders are saved on every multibranch or organization scan, so this keeps the rest cached.
+ * The cache holds the credentials object; the secret is only read when a notification is actually sent.
+ */
+final class NotiferCredentials {
+    private static final Logger LOGGER = Logger.getLogger(NotiferCredentials.class.getName());
+
+    static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int MAX_ENTRIES = 1000;
+
+    private static final Map<String, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private NotiferCredentials() {
+    }
+
+    /**
+     * Get the topic token stored in a secret text credential.
+     *
+     * @return the token, or null if the credential is not available to the item
+     */
+    static String lookupToken(String credentialsId, Item item) {
+        StringCredentials credentials = lookup(credentialsId, item);
+        return credentials != null ? credentials.getSecret().getPlainText() : null;
+    }
+
+    private static StringCredentials lookup(String credentialsId, Item item) {
+        Authentication authentication = item instanceof hudson.model.Queue.Task
+                ? ((hudson.model.Queue.Task) item).getDefaultAuthentication2()
+                : ACL.SYSTEM2;
+        // Item names cannot contain '|', see Jenkins.checkGoodName
+        String key = item.getFullName() + '|' + authentication.getName() + '|' + credentialsId;
+
+        long now = System.currentTimeMillis();
+        Entry entry = CACHE.get(key);
+        if (entry != null && now < entry.expiresAt) {
+            return entry.credentials;
+        }
+
+        StringCredentials credentials = CredentialsMatchers.firstOrNull(
+                CredentialsProvider.lookupCredentialsInItem(
+                        StringCredentials.class,
+                        item,
+                        authentication,
+                        Collections.emptyList()
+                ),
+                CredentialsMatchers.withId(credentialsId)
+        );
+
+        if (CACHE.size() >= MAX_ENTRIES) {
+            CACHE.clear();
+        }
+        CACHE.put(key, new Entry(credentials, now + TTL_MILLIS));
+        return credentials;
+    }
+
+    static void invalidateAll() {
+        CACHE.clear();
+    }
+
+    /**
+     * Drop the lookups made for items inside the folder.
+     */
+    static void invalidateWithin(String folderFullName) {
+        String prefix = folderFullName + '/';
+        CACHE.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    /**
+     * Drop the lookups made with the authentication of the user.
+     */
+    static void invalidateFor(String userId) {
+        CACHE.keySet().removeIf(key -> {
+            int start = key.indexOf('|') + 1;
+            int end = key.indexOf('|', start);
+            return key.substring(start, end).equals(userId);
+        });
+    }
+
+    /**
+     * Drops cached lookups whenever a credential store may have changed.
+     */
+    @Extension
+    public static class CredentialsChangeListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            invalidate(o);
+        }
+
+        @Override
+        public void onDeleted(Saveable o, XmlFile file) {
+            invalidate(o);
+        }
+
+        private static void invalidate(Saveable o) {
+            if (CACHE.isEmpty()) {
+                return;
+            }
+            if (o instanceof SystemCredentialsProvider) {
+                LOGGER.log(Level.FINE, "Credentials may have changed, clearing the Notifer credentials cache");
+                invalidateAll();
+            } else if (o instanceof Item && o instanceof ItemGroup) {
+                // Folders keep their credential stores in their own configuration
+                invalidateWithin(((Item) o).getFullName());
+            } else if (o instanceof User) {
+                invalidateFor(((User) o).getId());
+            }
+        }
+    }
+
+    private static final class Entry {
+        /** Null if the lookup found nothing */
+        private final StringCredentials credentials;
+        private final long expiresAt;
+
+        Entry(StringCredentials credentials, long expiresAt) {
+            this.credentials = credentials;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package io.notifer.jenkins;
+
+import hudson.init.Terminator;
+import jenkins.model.Jenkins;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executor running Notifer delivery work, separate from the Jenkins timer and remoting pools.
+ *
+ * By default every task runs on its own virtual thread and a semaphore caps how many run at
+ * once, so thousands of in-flight notifications share a few carrier threads. It can be switched
+ * to a bounded pool of platform threads, which is also used when the runtime has no virtual threads.
+ *
+ * The shared {@link java.net.http.HttpClient} gets its own executor, see {@link #forHttpClient()}: its
+ * tasks only process responses and never block, so they must not wait behind delivery work that does,
+ * such as credential lookups and outbox writes.
+ */
+public final class NotiferDeliveryExecutor implements Executor {
+    private static final Logger LOGGER = Logger.getLogger(NotiferDeliveryExecutor.class.getName());
+
+    static final int DEFAULT_MAX_CONCURRENCY = 64;
+
+    private static final NotiferDeliveryExecutor INSTANCE = new NotiferDeliveryExecutor();
+    private static final Executor HTTP_CLIENT = task -> INSTANCE.execute(task, true);
+
+    /**
+     * Kinds of threads running delivery work.
+     */
+    public enum Mode {
+        /** One virtual thread per task, capped by a semaphore */
+        VIRTUAL,
+        /** A bounded pool of platform threads */
+        PLATFORM
+    }
+
+    private volatile Delegate delegate;
+
+    private NotiferDeliveryExecutor() {
+    }
+
+    /**
+     * Get the executor. The instance is stable; reconfiguring swaps the threads behind it.
+     */
+    static NotiferDeliveryExecutor get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Executor for the shared HttpClient's internal work. It takes no permit: each task gets its own
+     * virtual thread, or in platform mode runs on a separate cached pool.
+     */
+    static Executor forHttpClient() {
+        return HTTP_CLIENT;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(task, false);
+    }
+
+    private void execute(Runnable task, boolean httpClient) {
+        Delegate current = current();
+        try {
+            current.execute(task, httpClient);
+        } catch (RejectedExecutionException e) {
+            // Reconfigured between picking the delegate and submitting, retry on its replacement
+            Delegate replacement = current();
+            if (replacement == current) {
+                throw e;
+            }
+            replacement.execute(task, httpClient);
+        }
+    }
+
+    /**
+     * Apply changed settings. Tasks already submitted finish on the old threads.
+     */
+    static void reconfigure() {
+        INSTANCE.replace(null);
+    }
+
+    /**
+     * Stop accepting delivery work when Jenkins shuts down.
+     */
+    @Terminator
+    public static void shutdown() {
+        INSTANCE.replace(Delegate.closed());
+    }
+
+    private Delegate current() {
+        Delegate current = delegate;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (delegate == null) {
+                delegate = create();
+            }
+            return delegate;
+        }
+    }
+
+    private void replace(Delegate replacement) {
+        Delegate old;
+        synchronized (this) {
+            old = delegate;
+            delegate = replacement;
+        }
+        if (old != null) {
+            old.shutdown();
+        }
+    }
+
+    private static Delegate create() {
+        Mode mode = Mode.VIRTUAL;
+        int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+        if (Jenkins.getInstanceOrNull() != null) {
+            NotiferGlobalConfiguration config = NotiferGlobalConfiguration.get();
+            mode = config.getDeliveryThreads();
+            maxConcurrency = config.getDeliveryMaxConcurrency();
+        }
+
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            if (virtual != null) {
+                return new Delegate(virtual, new Semaphore(maxConcurrency), virtual);
+            }
+            LOGGER.log(Level.INFO, "Virtual threads are not available on this Java runtime, "
+                    + "running Notifer deliveries on platform threads");
+        }
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DaemonThreadFactory("notifer-delivery-"));
+        pool.allowCoreThreadTimeOut(true);
+        return new Delegate(pool, null, Executors.newCachedThreadPool(new DaemonThreadFactory("notifer-http-")));
+    }
+
+    /**
+     * Create a thread-per-task executor on virtual threads.
+     * Looked up reflectively because the plugin still compiles for Java 17.
+     *
+     * @return the executor, or null if the runtime has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "notifer-delivery-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.log(Level.FINE, "Virtual threads unavailable", e);
+            return null;
+        }
+    }
+
+    private static final class Delegate {
+        private final ExecutorService service;
+        private final Semaphore permits;
+        /** Runs the HttpClient's tasks, may be the same as service */
+        private final ExecutorService httpClient;
+
+        Delegate(ExecutorService service, Semaphore permits, ExecutorService httpClient) {
+            this.service = service;
+            this.permits = permits;
+            this.httpClient = httpClient;
+        }
+
+        static Delegate closed() {
+            ExecutorService service = Executors.newSingleThreadExecutor();
+            service.shutdown();
+            return new Delegate(service, null, service);
+        }
+
+        void execute(Runnable task, boolean forHttpClient) {
+            if (forHttpClient) {
+                httpClient.execute(task);
+                return;
+            }
+            if (permits == null) {
+                service.execute(task);
+                return;
+            }
+            service.execute(() -> {
+                // Waiting for a permit parks only the virtual thread
+                permits.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        void shutdown() {
+            service.shutdown();
+            httpClient.shutdown();
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, prefix + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.notifer.jenkins;
+
+import hudson.model.Run;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background delivery engine for notifications.
+ *
+ * Hands notifications to {@link NotiferClient#sendAsync} and records every delivery result
+ * on the originating run through {@link NotiferRunAction}, so callers that do not wait for
+ * the Notifer API can still inspect the outcome later.
+ */
+final class NotiferDispatcher {
+    private static final Logger LOGGER = Logger.getLogger(NotiferDispatcher.class.getName());
+    private static final AtomicInteger PENDING = new AtomicInteger();
+
+    private NotiferDispatcher() {
+    }
+
+    /**
+     * Queue a notification for delivery.
+     *
+     * @param run      Run the notification belongs to, used to record the result
+     * @param client   Client holding the topic token
+     * @param topic    Topic name
+     * @param message  Message content
+     * @param title    Optional title (can be null)
+     * @param priority Priority 1-5
+     * @param tags     Optional list of tags (can be null or empty)
+     * @param mode     How much of the response body the caller needs
+     * @param idempotencyKey Key identifying the notification, see {@link NotiferIdempotency}
+     * @return Future completed once the delivery result has been recorded
+     */
+    static CompletableFuture<NotiferClient.NotiferResponse> dispatch(Run<?, ?> run, NotiferClient client,
+                                                                      String topic, String message, String title,
+                                                                      int priority, List<String> tags,
+                                                                      NotiferClient.ResponseMode mode,
+                                                                      String idempotencyKey) {
+        PENDING.incrementAndGet();
+        CompletableFuture<NotiferClient.NotiferResponse> future =
+                client.sendAsync(topic, message, title, priority, tags, mode, idempotencyKey);
+        future.whenComplete((response, error) -> {
+            PENDING.decrementAndGet();
+            NotiferRunAction.record(run, topic, response, error);
+        });
+        return future;
+    }
+
+    /**
+     * Queue a notification whose caller does not wait for the result.
+     * Goes through the durable {@link NotiferOutbox} when it is enabled, so the notification
+     * survives controller restarts and API outages.
+     *
+     * @param run      Run the notification belongs to, used to record the result
+     * @param client   Client holding the topic token
+     * @param topic    Topic name
+     * @param message  Message content
+     * @param title    Optional title (can be null)
+     * @param priority Priority 1-5
+     * @param tags     Optional list of tags (can be null or empty)
+     * @param idempotencyKey Key identifying the notification, see {@link NotiferIdempotency}
+     */
+    static void enqueue(Run<?, ?> run, NotiferClient client, String topic, String message, String title,
+                        int priority, List<String> tags, String idempotencyKey) {
+        NotiferOutbox outbox = NotiferOutbox.get();
+        if (outbox != null) {
+            try {
+                outbox.enqueue(run, client.getToken(), topic, message, title, priority, tags, idempotencyKey);
+                return;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to write notification to the Notifer outbox, delivering directly", e);
+            }
+        }
+        dispatch(run, client, topic, message, title, priority, tags, NotiferClient.ResponseMode.ID_ONLY,
+                idempotencyKey);
+    }
+
+    /**
+     * Number of notifications handed to the client that have not completed yet.
+     */
+    static int getPendingCount() {
+        return PENDING.get();
+    }
+}
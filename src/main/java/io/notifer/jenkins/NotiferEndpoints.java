@@ -0,0 +1,177 @@
+package io.notifer.jenkins;
+
+import jenkins.model.Jenkins;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Notifer API endpoints notifications are sent to, in order of preference.
+ *
+ * Each attempt picks an endpoint: the first one in the configured order that is healthy (its
+ * {@link CircuitBreaker} lets requests through) and whose latency, an exponentially weighted
+ * moving average of recent round trips, is within twice that of the fastest healthy endpoint.
+ * The endpoint that failed a notification's previous attempt is avoided, so retries fail over.
+ */
+public final class NotiferEndpoints {
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    /** Latency measured longer ago than this no longer counts against an endpoint */
+    private static final long STALE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Map<String, Endpoint> ENDPOINTS = new ConcurrentHashMap<>();
+    private static volatile List<String> configured;
+
+    private NotiferEndpoints() {
+    }
+
+    /**
+     * Configured endpoint URLs in order of preference, never empty.
+     */
+    static List<String> configured() {
+        List<String> urls = configured;
+        if (urls == null) {
+            urls = reconfigure();
+        }
+        return urls;
+    }
+
+    /**
+     * Re-read the endpoint list after the configuration changed.
+     */
+    static List<String> reconfigure() {
+        return configure(Jenkins.getInstanceOrNull() != null
+                ? NotiferGlobalConfiguration.get().getEndpointList() : List.of());
+    }
+
+    /**
+     * Use the given endpoints, or the public API if there are none.
+     */
+    static List<String> configure(List<String> urls) {
+        if (urls.isEmpty()) {
+            urls = List.of(NotiferClient.API_URL);
+        }
+        configured = urls;
+        ENDPOINTS.keySet().retainAll(urls);
+        return urls;
+    }
+
+    /**
+     * Choose the endpoint for an attempt.
+     *
+     * @param avoid Endpoint that failed the previous attempt, or null
+     */
+    static String select(String avoid) {
+        List<String> urls = configured();
+        if (urls.size() == 1) {
+            return urls.get(0);
+        }
+
+        long now = System.currentTimeMillis();
+        List<Endpoint> candidates = new ArrayList<>(urls.size());
+        double fastest = Double.MAX_VALUE;
+        for (String url : urls) {
+            Endpoint endpoint = get(url);
+            if (!url.equals(avoid) && endpoint.isHealthy()) {
+                candidates.add(endpoint);
+                double latency = endpoint.latencyNanos(now);
+                if (latency > 0) {
+                    fastest = Math.min(fastest, latency);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            // Nothing healthy to fail over to, let the first other endpoint's breaker decide
+            for (String url : urls) {
+                if (!url.equals(avoid)) {
+                    return url;
+                }
+            }
+            return urls.get(0);
+        }
+
+        for (Endpoint endpoint : candidates) {
+            // Unmeasured endpoints get a chance, so their latency becomes known
+            double latency = endpoint.latencyNanos(now);
+            if (latency == 0 || latency <= fastest * LATENCY_TOLERANCE) {
+                return endpoint.url;
+            }
+        }
+        return candidates.get(0).url;
+    }
+
+    /**
+     * Record the round-trip time of a request the endpoint answered.
+     */
+    static void recordLatency(String url, long latencyNanos) {
+        get(url).record(latencyNanos);
+    }
+
+    /**
+     * All configured endpoints, for display to administrators.
+     */
+    public static List<Endpoint> all() {
+        List<Endpoint> all = new ArrayList<>();
+        for (String url : configured()) {
+            all.add(get(url));
+        }
+        return all;
+    }
+
+    private static Endpoint get(String url) {
+        return ENDPOINTS.computeIfAbsent(url, Endpoint::new);
+    }
+
+    /**
+     * Latency statistics of one endpoint.
+     */
+    public static final class Endpoint {
+        private final String url;
+        private double ewmaNanos;
+        private long lastSampleAt;
+
+        Endpoint(String url) {
+            this.url = url;
+        }
+
+        synchronized void record(long latencyNanos) {
+            long now = System.currentTimeMillis();
+            if (ewmaNanos == 0 || now - lastSampleAt > STALE_MILLIS) {
+                ewmaNanos = latencyNanos;
+            } else {
+                ewmaNanos += (latencyNanos - ewmaNanos) * EWMA_WEIGHT;
+            }
+            lastSampleAt = now;
+        }
+
+        /**
+         * @return the average latency, or 0 if unknown or stale
+         */
+        synchronized double latencyNanos(long now) {
+            return now - lastSampleAt > STALE_MILLIS ? 0 : ewmaNanos;
+        }
+
+        boolean isHealthy() {
+            return CircuitBreaker.forEndpoint(url).isCallPermitted();
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Average latency in milliseconds, or -1 if there is no recent measurement.
+         */
+        public long getLatencyMillis() {
+            double latency = latencyNanos(System.currentTimeMillis());
+            return latency == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis((long) latency);
+        }
+
+        public CircuitBreaker getCircuitBreaker() {
+            return CircuitBreaker.forEndpoint(url);
+        }
+    }
+}
@@ -0,0 +1,632 @@
+package io.notifer.jenkins;
+
+import hudson.BulkChange;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.Util;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import jenkins.model.GlobalConfiguration;
+import net.sf.json.JSONObject;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.verb.POST;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Global settings for Notifer delivery, under Manage Jenkins &gt; System.
+ */
+@Extension
+@Symbol("notifer")
+public class NotiferGlobalConfiguration extends GlobalConfiguration {
+
+    private int retryAttempts = RetryPolicy.DEFAULT_MAX_ATTEMPTS;
+    private long retryInitialDelayMillis = RetryPolicy.DEFAULT_INITIAL_DELAY_MILLIS;
+    private long retryMaxDelayMillis = RetryPolicy.DEFAULT_MAX_DELAY_MILLIS;
+    private int circuitBreakerWindowSize = CircuitBreaker.DEFAULT_WINDOW_SIZE;
+    private int circuitBreakerFailureRateThreshold = CircuitBreaker.DEFAULT_FAILURE_RATE_THRESHOLD;
+    private long circuitBreakerOpenDurationMillis = CircuitBreaker.DEFAULT_OPEN_DURATION_MILLIS;
+    private double rateLimitPerSecond = 0;
+    private int rateLimitBurst = 10;
+    private int compressionThresholdBytes = 0;
+    private boolean durableOutbox = false;
+    private NotiferOutbox.Backend outboxBackend = NotiferOutbox.Backend.FILE;
+    private long outboxSyncIntervalMillis = 100;
+    private int outboxSyncBatchSize = 64;
+    private NotiferDeliveryExecutor.Mode deliveryThreads = NotiferDeliveryExecutor.Mode.VIRTUAL;
+    private int deliveryMaxConcurrency = NotiferDeliveryExecutor.DEFAULT_MAX_CONCURRENCY;
+    private int bulkheadMaxConcurrent = Bulkhead.DEFAULT_MAX_CONCURRENT;
+    private int bulkheadMaxQueued = Bulkhead.DEFAULT_MAX_QUEUED;
+    private int bulkheadPerTopicMaxConcurrent = 0;
+    private boolean adaptiveConcurrency = false;
+    private long priorityAgingMillis = PriorityWaitQueue.DEFAULT_AGING_MILLIS;
+    private LoadShedding.Policy sheddingPolicy = LoadShedding.Policy.NONE;
+    private int sheddingWatermark = LoadShedding.DEFAULT_WATERMARK;
+    private boolean requestHedging = false;
+    private int hedgeBudgetPercent = RequestHedging.DEFAULT_BUDGET_PERCENT;
+    private boolean connectionWarmUp = false;
+    private String endpoints;
+
+    /** Components to reconfigure once {@link #configure} has saved the submitted form */
+    private transient volatile Set<Component> pendingChanges;
+
+    public NotiferGlobalConfiguration() {
+        load();
+    }
+
+    @NonNull
+    public static NotiferGlobalConfiguration get() {
+        return ExtensionList.lookupSingleton(NotiferGlobalConfiguration.class);
+    }
+
+    @NonNull
+    @Override
+    public String getDisplayName() {
+        return "Notifer";
+    }
+
+    // --- Getters ---
+
+    public int getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    public long getRetryInitialDelayMillis() {
+        return retryInitialDelayMillis;
+    }
+
+    public long getRetryMaxDelayMillis() {
+        return retryMaxDelayMillis;
+    }
+
+    public int getCircuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+
+    public int getCircuitBreakerFailureRateThreshold() {
+        return circuitBreakerFailureRateThreshold;
+    }
+
+    public long getCircuitBreakerOpenDurationMillis() {
+        return circuitBreakerOpenDurationMillis;
+    }
+
+    public double getRateLimitPerSecond() {
+        return rateLimitPerSecond;
+    }
+
+    public int getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public int getCompressionThresholdBytes() {
+        return compressionThresholdBytes;
+    }
+
+    public boolean isDurableOutbox() {
+        return durableOutbox;
+    }
+
+    @NonNull
+    public NotiferOutbox.Backend getOutboxBackend() {
+        return outboxBackend != null ? outboxBackend : NotiferOutbox.Backend.FILE;
+    }
+
+    public long getOutboxSyncIntervalMillis() {
+        return outboxSyncIntervalMillis;
+    }
+
+    public int getOutboxSyncBatchSize() {
+        return outboxSyncBatchSize;
+    }
+
+    @NonNull
+    public NotiferDeliveryExecutor.Mode getDeliveryThreads() {
+        return deliveryThreads != null ? deliveryThreads : NotiferDeliveryExecutor.Mode.VIRTUAL;
+    }
+
+    public int getDeliveryMaxConcurrency() {
+        return deliveryMaxConcurrency;
+    }
+
+    public int getBulkheadMaxConcurrent() {
+        return bulkheadMaxConcurrent;
+    }
+
+    public int getBulkheadMaxQueued() {
+        return bulkheadMaxQueued;
+    }
+
+    public int getBulkheadPerTopicMaxConcurrent() {
+        return bulkheadPerTopicMaxConcurrent;
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public long getPriorityAgingMillis() {
+        return priorityAgingMillis;
+    }
+
+    @NonNull
+    public LoadShedding.Policy getSheddingPolicy() {
+        return sheddingPolicy != null ? sheddingPolicy : LoadShedding.Policy.NONE;
+    }
+
+    public int getSheddingWatermark() {
+        return sheddingWatermark;
+    }
+
+    public boolean isRequestHedging() {
+        return requestHedging;
+    }
+
+    public int getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+
+    public boolean isConnectionWarmUp() {
+        return connectionWarmUp;
+    }
+
+    /**
+     * API endpoints, one URL per line in order of preference. Empty means the public Notifer API.
+     */
+    public String getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Configured API endpoint URLs without trailing slashes, empty if none are configured.
+     * Lines that are not HTTP(S) URLs are skipped, {@link #doCheckEndpoints} reports them.
+     */
+    @NonNull
+    List<String> getEndpointList() {
+        List<String> urls = new ArrayList<>();
+        if (endpoints != null) {
+            for (String line : endpoints.split("\\R")) {
+                String url = line.trim();
+                while (url.endsWith("/")) {
+                    url = url.substring(0, url.length() - 1);
+                }
+                if (isEndpointUrl(url) && !urls.contains(url)) {
+                    urls.add(url);
+                }
+            }
+        }
+        return urls;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return new RetryPolicy(retryAttempts, retryInitialDelayMillis, retryMaxDelayMillis);
+    }
+
+    // --- Setters ---
+
+    /**
+     * Maximum number of attempts per notification, including the first one.
+     */
+    @DataBoundSetter
+    public void setRetryAttempts(int retryAttempts) {
+        this.retryAttempts = Math.max(1, Math.min(10, retryAttempts));
+        save();
+    }
+
+    @DataBoundSetter
+    public void setRetryInitialDelayMillis(long retryInitialDelayMillis) {
+        this.retryInitialDelayMillis = Math.max(1, retryInitialDelayMillis);
+        save();
+    }
+
+    @DataBoundSetter
+    public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+        this.retryMaxDelayMillis = Math.max(1, retryMaxDelayMillis);
+        save();
+    }
+
+    /**
+     * Number of recent requests the circuit breaker evaluates.
+     */
+    @DataBoundSetter
+    public void setCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+        int value = Math.max(1, Math.min(1000, circuitBreakerWindowSize));
+        if (value != this.circuitBreakerWindowSize) {
+            this.circuitBreakerWindowSize = value;
+            changed(Component.CIRCUIT_BREAKERS);
+        }
+    }
+
+    /**
+     * Failure rate in percent at which the circuit opens.
+     */
+    @DataBoundSetter
+    public void setCircuitBreakerFailureRateThreshold(int circuitBreakerFailureRateThreshold) {
+        int value = Math.max(1, Math.min(100, circuitBreakerFailureRateThreshold));
+        if (value != this.circuitBreakerFailureRateThreshold) {
+            this.circuitBreakerFailureRateThreshold = value;
+            changed(Component.CIRCUIT_BREAKERS);
+        }
+    }
+
+    @DataBoundSetter
+    public void setCircuitBreakerOpenDurationMillis(long circuitBreakerOpenDurationMillis) {
+        long value = Math.max(1, circuitBreakerOpenDurationMillis);
+        if (value != this.circuitBreakerOpenDurationMillis) {
+            this.circuitBreakerOpenDurationMillis = value;
+            changed(Component.CIRCUIT_BREAKERS);
+        }
+    }
+
+    /**
+     * Sustained number of requests per second allowed per topic token, 0 to disable pacing.
+     */
+    @DataBoundSetter
+    public void setRateLimitPerSecond(double rateLimitPerSecond) {
+        double value = Math.max(0, rateLimitPerSecond);
+        if (value != this.rateLimitPerSecond) {
+            this.rateLimitPerSecond = value;
+            changed(Component.RATE_LIMITERS);
+        }
+    }
+
+    /**
+     * Number of requests per topic token that may be sent back to back after an idle period.
+     */
+    @DataBoundSetter
+    public void setRateLimitBurst(int rateLimitBurst) {
+        int value = Math.max(1, rateLimitBurst);
+        if (value != this.rateLimitBurst) {
+            this.rateLimitBurst = value;
+            changed(Component.RATE_LIMITERS);
+        }
+    }
+
+    /**
+     * Request bodies of at least this many bytes are sent gzip-compressed, 0 to disable compression.
+     */
+    @DataBoundSetter
+    public void setCompressionThresholdBytes(int compressionThresholdBytes) {
+        this.compressionThresholdBytes = Math.max(0, compressionThresholdBytes);
+        save();
+    }
+
+    /**
+     * Write background notifications to a persistent outbox under JENKINS_HOME before delivering them.
+     */
+    @DataBoundSetter
+    public void setDurableOutbox(boolean durableOutbox) {
+        this.durableOutbox = durableOutbox;
+        save();
+    }
+
+    /**
+     * Journal backend of the durable outbox. Takes effect when the outbox is next opened, i.e. after a restart.
+     */
+    @DataBoundSetter
+    public void setOutboxBackend(NotiferOutbox.Backend outboxBackend) {
+        this.outboxBackend = outboxBackend;
+        save();
+    }
+
+    /**
+     * Longest time records of the memory-mapped outbox stay unforced.
+     */
+    @DataBoundSetter
+    public void setOutboxSyncIntervalMillis(long outboxSyncIntervalMillis) {
+        this.outboxSyncIntervalMillis = Math.max(1, outboxSyncIntervalMillis);
+        save();
+    }
+
+    /**
+     * Number of records after which the memory-mapped outbox is forced to disk.
+     */
+    @DataBoundSetter
+    public void setOutboxSyncBatchSize(int outboxSyncBatchSize) {
+        this.outboxSyncBatchSize = Math.max(1, outboxSyncBatchSize);
+        save();
+    }
+
+    /**
+     * Kind of threads running deliveries.
+     */
+    @DataBoundSetter
+    public void setDeliveryThreads(NotiferDeliveryExecutor.Mode deliveryThreads) {
+        if (deliveryThreads != this.deliveryThreads) {
+            this.deliveryThreads = deliveryThreads;
+            changed(Component.DELIVERY_EXECUTOR);
+        }
+    }
+
+    /**
+     * Maximum number of delivery tasks running at once (1-1024).
+     */
+    @DataBoundSetter
+    public void setDeliveryMaxConcurrency(int deliveryMaxConcurrency) {
+        int value = Math.max(1, Math.min(1024, deliveryMaxConcurrency));
+        if (value != this.deliveryMaxConcurrency) {
+            this.deliveryMaxConcurrency = value;
+            changed(Component.DELIVERY_EXECUTOR);
+        }
+    }
+
+    /**
+     * Maximum number of Notifer requests in flight across the controller (1-1000).
+     */
+    @DataBoundSetter
+    public void setBulkheadMaxConcurrent(int bulkheadMaxConcurrent) {
+        int value = Math.max(1, Math.min(1000, bulkheadMaxConcurrent));
+        if (value != this.bulkheadMaxConcurrent) {
+            this.bulkheadMaxConcurrent = value;
+            changed(Component.BULKHEADS);
+        }
+    }
+
+    /**
+     * Maximum number of requests waiting for a free slot before new ones are rejected.
+     */
+    @DataBoundSetter
+    public void setBulkheadMaxQueued(int bulkheadMaxQueued) {
+        int value = Math.max(0, bulkheadMaxQueued);
+        if (value != this.bulkheadMaxQueued) {
+            this.bulkheadMaxQueued = value;
+            changed(Component.BULKHEADS);
+        }
+    }
+
+    /**
+     * Maximum number of requests in flight per topic, 0 for no per-topic limit.
+     */
+    @DataBoundSetter
+    public void setBulkheadPerTopicMaxConcurrent(int bulkheadPerTopicMaxConcurrent) {
+        int value = Math.max(0, Math.min(1000, bulkheadPerTopicMaxConcurrent));
+        if (value != this.bulkheadPerTopicMaxConcurrent) {
+            this.bulkheadPerTopicMaxConcurrent = value;
+            changed(Component.BULKHEADS);
+        }
+    }
+
+    /**
+     * Adapt the concurrency limit to the latency and error rate of the Notifer API,
+     * up to the configured maximum.
+     */
+    @DataBoundSetter
+    public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        boolean value = adaptiveConcurrency;
+        if (value != this.adaptiveConcurrency) {
+            this.adaptiveConcurrency = value;
+            changed(Component.BULKHEADS);
+        }
+    }
+
+    /**
+     * Wait after which a queued notification moves up one priority level, 0 for strict priority order.
+     */
+    @DataBoundSetter
+    public void setPriorityAgingMillis(long priorityAgingMillis) {
+        long value = Math.max(0, priorityAgingMillis);
+        if (value != this.priorityAgingMillis) {
+            this.priorityAgingMillis = value;
+            changed(Component.BULKHEADS);
+        }
+    }
+
+    /**
+     * What happens to priority 1-2 notifications while the backlog is above the watermark.
+     */
+    @DataBoundSetter
+    public void setSheddingPolicy(LoadShedding.Policy sheddingPolicy) {
+        if (sheddingPolicy != this.sheddingPolicy) {
+            this.sheddingPolicy = sheddingPolicy;
+            changed(Component.BULKHEADS);
+        }
+    }
+
+    /**
+     * Number of waiting requests from which low-priority notifications are shed.
+     */
+    @DataBoundSetter
+    public void setSheddingWatermark(int sheddingWatermark) {
+        int value = Math.max(0, sheddingWatermark);
+        if (value != this.sheddingWatermark) {
+            this.sheddingWatermark = value;
+            changed(Component.BULKHEADS);
+        }
+    }
+
+    /**
+     * Hedge priority 5 notifications that take longer than the observed p95 latency.
+     */
+    @DataBoundSetter
+    public void setRequestHedging(boolean requestHedging) {
+        this.requestHedging = requestHedging;
+        save();
+    }
+
+    /**
+     * Hedged requests allowed as a percentage of all requests (1-50).
+     */
+    @DataBoundSetter
+    public void setHedgeBudgetPercent(int hedgeBudgetPercent) {
+        this.hedgeBudgetPercent = Math.max(1, Math.min(50, hedgeBudgetPercent));
+        save();
+    }
+
+    /**
+     * Open a connection to the Notifer API at startup and keep it warm while notifications are being sent.
+     */
+    @DataBoundSetter
+    public void setConnectionWarmUp(boolean connectionWarmUp) {
+        this.connectionWarmUp = connectionWarmUp;
+        save();
+    }
+
+    @DataBoundSetter
+    public void setEndpoints(String endpoints) {
+        String value = Util.fixEmptyAndTrim(endpoints);
+        if (!Objects.equals(value, this.endpoints)) {
+            this.endpoints = value;
+            changed(Component.ENDPOINTS);
+        }
+    }
+
+    /**
+     * Bind the submitted form, save once and reconfigure only the components whose settings changed.
+     */
+    @Override
+    public boolean configure(StaplerRequest2 req, JSONObject json) throws FormException {
+        Set<Component> changed = EnumSet.noneOf(Component.class);
+        synchronized (this) {
+            pendingChanges = changed;
+            try (BulkChange bc = new BulkChange(this)) {
+                req.bindJSON(this, json);
+                bc.commit();
+            } catch (IOException e) {
+                throw new FormException("Failed to save the Notifer configuration", e, "");
+            } finally {
+                pendingChanges = null;
+            }
+        }
+        changed.forEach(Component::apply);
+        return true;
+    }
+
+    /**
+     * Save a changed setting and apply it to the running component, or only note the component
+     * while {@link #configure} binds a form submission.
+     */
+    private void changed(Component component) {
+        save();
+        Set<Component> pending = pendingChanges;
+        if (pending != null) {
+            pending.add(component);
+        } else {
+            component.apply();
+        }
+    }
+
+    /**
+     * Runtime components holding a copy of their settings.
+     */
+    private enum Component {
+        CIRCUIT_BREAKERS,
+        RATE_LIMITERS,
+        DELIVERY_EXECUTOR,
+        BULKHEADS,
+        ENDPOINTS;
+
+        void apply() {
+            switch (this) {
+                case CIRCUIT_BREAKERS:
+                    CircuitBreaker.reconfigureAll();
+                    break;
+                case RATE_LIMITERS:
+                    TokenBucketRateLimiter.reset();
+                    break;
+                case DELIVERY_EXECUTOR:
+                    NotiferDeliveryExecutor.reconfigure();
+                    break;
+                case BULKHEADS:
+                    Bulkhead.reconfigureAll();
+                    break;
+                case ENDPOINTS:
+                    NotiferEndpoints.reconfigure();
+                    break;
+                default:
+                    throw new AssertionError(this);
+            }
+        }
+    }
+
+    // --- Form Validation ---
+
+    @POST
+    public FormValidation doCheckEndpoints(@QueryParameter String value) {
+        if (value == null) {
+            return FormValidation.ok();
+        }
+        for (String line : value.split("\\R")) {
+            String url = line.trim();
+            if (url.isEmpty()) {
+                continue;
+            }
+            if (!isEndpointUrl(url)) {
+                return FormValidation.error("Not an HTTP(S) URL without query or fragment: " + url);
+            }
+        }
+        return FormValidation.ok();
+    }
+
+    private static boolean isEndpointUrl(String url) {
+        try {
+            URI uri = new URI(url);
+            return ("https".equals(uri.getScheme()) || "http".equals(uri.getScheme())) && uri.getHost() != null
+                    && uri.getRawQuery() == null && uri.getRawFragment() == null;
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    @POST
+    public FormValidation doCheckRetryAttempts(@QueryParameter int value) {
+        if (value < 1 || value > 10) {
+            return FormValidation.warning("Attempts should be between 1 (no retries) and 10");
+        }
+        return FormValidation.ok();
+    }
+
+    @POST
+    public FormValidation doCheckCircuitBreakerFailureRateThreshold(@QueryParameter int value) {
+        if (value < 1 || value > 100) {
+            return FormValidation.warning("Threshold is a percentage between 1 and 100");
+        }
+        return FormValidation.ok();
+    }
+
+    /**
+     * Fill shedding policy dropdown.
+     */
+    @POST
+    public ListBoxModel doFillSheddingPolicyItems() {
+        ListBoxModel items = new ListBoxModel();
+        items.add("Never shed", LoadShedding.Policy.NONE.name());
+        items.add("Drop the oldest low-priority notification", LoadShedding.Policy.DROP_OLDEST_LOW_PRIORITY.name());
+        items.add("Collapse low-priority notifications into a count summary",
+                LoadShedding.Policy.COLLAPSE_LOW_PRIORITY.name());
+        items.add("Reject new low-priority notifications", LoadShedding.Policy.REJECT_NEW_LOW_PRIORITY.name());
+        return items;
+    }
+
+    /**
+     * Fill delivery threads dropdown.
+     */
+    @POST
+    public ListBoxModel doFillDeliveryThreadsItems() {
+        ListBoxModel items = new ListBoxModel();
+        items.add("Virtual threads", NotiferDeliveryExecutor.Mode.VIRTUAL.name());
+        items.add("Bounded platform thread pool", NotiferDeliveryExecutor.Mode.PLATFORM.name());
+        return items;
+    }
+
+    /**
+     * Fill outbox backend dropdown.
+     */
+    @POST
+    public ListBoxModel doFillOutboxBackendItems() {
+        ListBoxModel items = new ListBoxModel();
+        items.add("File, forced on every notification", NotiferOutbox.Backend.FILE.name());
+        items.add("Memory-mapped, forced in groups", NotiferOutbox.Backend.MAPPED.name());
+        return items;
+    }
+}
@@ -0,0 +1,123 @@
+package io.notifer.jenkins;
+
+import hudson.Extension;
+import hudson.ProxyConfiguration;
+import hudson.XmlFile;
+import hudson.init.Terminator;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import jenkins.model.Jenkins;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide registry of HTTP clients used by {@link NotiferClient}.
+ *
+ * Keeps one long-lived HTTP/2 client for the current Jenkins proxy configuration so that
+ * connections, TLS sessions, proxy authentication and the selector thread are reused across
+ * notifications. Getting the client is a single volatile read; it is rebuilt when the proxy
+ * configuration is saved and closed on Jenkins shutdown.
+ */
+public final class NotiferHttpClients {
+    private static final Logger LOGGER = Logger.getLogger(NotiferHttpClients.class.getName());
+
+    private static final Object LOCK = new Object();
+    private static volatile HttpClient current;
+
+    private NotiferHttpClients() {
+    }
+
+    /**
+     * Get the shared HTTP client for the current Jenkins proxy configuration.
+     */
+    static HttpClient get() {
+        HttpClient client = current;
+        if (client != null) {
+            return client;
+        }
+
+        synchronized (LOCK) {
+            if (current == null) {
+                current = build(currentProxy());
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Replace the shared client with one built for the current proxy configuration.
+     */
+    static void rebuild() {
+        synchronized (LOCK) {
+            // In-flight requests keep the old client reachable; it is released once they finish
+            current = build(currentProxy());
+        }
+        LOGGER.log(Level.FINE, "Proxy configuration changed, rebuilt Notifer HTTP client");
+        NotiferConnectionWarmer.rewarm();
+    }
+
+    /**
+     * Close the shared client when Jenkins shuts down.
+     */
+    @Terminator
+    public static void shutdown() {
+        HttpClient client;
+        synchronized (LOCK) {
+            client = current;
+            current = null;
+        }
+        if (client != null) {
+            close(client);
+        }
+    }
+
+    private static HttpClient build(ProxyConfiguration proxy) {
+        // Use Jenkins proxy-aware builder when a proxy is configured
+        HttpClient.Builder builder = proxy != null ? proxy.newHttpClientBuilder() : HttpClient.newBuilder();
+        return builder
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(NotiferClient.TIMEOUT_SECONDS))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(NotiferDeliveryExecutor.forHttpClient())
+                .build();
+    }
+
+    private static void close(HttpClient client) {
+        // HttpClient is AutoCloseable from Java 21 on; older runtimes release it on garbage collection
+        if (client instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) client).close();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to close Notifer HTTP client", e);
+            }
+        }
+    }
+
+    private static ProxyConfiguration currentProxy() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        return jenkins != null ? jenkins.proxy : null;
+    }
+
+    /**
+     * Rebuilds the shared client when the proxy configuration is saved or removed.
+     */
+    @Extension
+    public static class ProxyListener extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof ProxyConfiguration) {
+                rebuild();
+            }
+        }
+
+        @Override
+        public void onDeleted(Saveable o, XmlFile file) {
+            if (o instanceof ProxyConfiguration) {
+                rebuild();
+            }
+        }
+    }
+}
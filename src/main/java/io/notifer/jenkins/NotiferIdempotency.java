@@ -0,0 +1,100 @@
+package io.notifer.jenkins;
+
+import hudson.Util;
+import hudson.model.Run;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Idempotency keys of notifications and a cache of the keys already sent.
+ *
+ * A key identifies one notification of a build step. It stays the same across retries, hedges
+ * and outbox replays and is sent as the {@code Idempotency-Key} header. The cache remembers
+ * keys that are in flight or were delivered within the expiry, so a notification submitted
+ * again is answered with the earlier result instead of going out twice. Lookups are plain
+ * {@link ConcurrentHashMap} reads; at most {@link #MAX_ENTRIES} keys are kept, oldest evicted first.
+ */
+final class NotiferIdempotency {
+    static final int MAX_ENTRIES = 10_000;
+    static final long EXPIRY_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private static final Map<String, Entry> CACHE = new ConcurrentHashMap<>();
+    private static final Queue<Entry> INSERTION_ORDER = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger SIZE = new AtomicInteger();
+
+    private NotiferIdempotency() {
+    }
+
+    /**
+     * Build the key of a notification.
+     *
+     * @param run    Run sending the notification
+     * @param stepId Identifies the invocation of the step or publisher within the run
+     */
+    static String key(Run<?, ?> run, String stepId) {
+        // Hashed, job names are not necessarily valid header values
+        return Util.getDigestOf(run.getExternalizableId() + '/' + stepId);
+    }
+
+    /**
+     * Claim a key before sending.
+     *
+     * @param result Future of the new send, settles the claim when it completes
+     * @return the future of an earlier send with the same key that is in flight or was delivered,
+     *         or null if the caller should go ahead and send
+     */
+    static CompletableFuture<NotiferClient.NotiferResponse> claim(
+            String key, CompletableFuture<NotiferClient.NotiferResponse> result) {
+        Entry claimed = new Entry(key, result);
+        while (true) {
+            Entry existing = CACHE.get(key);
+            if (existing != null && !existing.isExpired()) {
+                return existing.result;
+            }
+            if (existing == null ? CACHE.putIfAbsent(key, claimed) == null : CACHE.replace(key, existing, claimed)) {
+                break;
+            }
+        }
+
+        INSERTION_ORDER.add(claimed);
+        if (SIZE.incrementAndGet() > MAX_ENTRIES) {
+            Entry oldest = INSERTION_ORDER.poll();
+            if (oldest != null) {
+                SIZE.decrementAndGet();
+                CACHE.remove(oldest.key, oldest);
+            }
+        }
+
+        result.whenComplete((response, error) -> {
+            if (error != null) {
+                // Not delivered, a later submission may try again
+                CACHE.remove(key, claimed);
+            } else {
+                claimed.expiresAt = System.currentTimeMillis() + EXPIRY_MILLIS;
+            }
+        });
+        return null;
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final CompletableFuture<NotiferClient.NotiferResponse> result;
+        /** Never expires while in flight */
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(String key, CompletableFuture<NotiferClient.NotiferResponse> result) {
+            this.key = key;
+            this.result = result;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
@@ -45,6 +45,7 @@ public class NotiferNotifier extends Notifier implements SimpleBuildStep {
     private boolean notifyFailure = true;
     private boolean notifyUnstable = true;
     private boolean notifyAborted = false;
+    private boolean async = false;
 
     @DataBoundConstructor
     public NotiferNotifier(@NonNull String credentialsId, @NonNull String topic) {
@@ -96,6 +97,10 @@ public class NotiferNotifier extends Notifier implements SimpleBuildStep {
         return notifyAborted;
     }
 
+    public boolean isAsync() {
+        return async;
+    }
+
     // --- Setters ---
 
     @DataBoundSetter
@@ -155,6 +160,15 @@ public class NotiferNotifier extends Notifier implements SimpleBuildStep {
         this.notifyAborted = notifyAborted;
     }
 
+    /**
+     * When true, the notification is handed to the background dispatcher and the executor
+     * is released without waiting for the Notifer API. The result is recorded on the run.
+     */
+    @DataBoundSetter
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
     @Override
     public BuildStepMonitor getRequiredMonitorService() {
         return BuildStepMonitor.NONE;
@@ -175,7 +189,7 @@ public class NotiferNotifier extends Notifier implements SimpleBuildStep {
         }
 
         // Get token from credentials
-        String token = getTokenFromCredentials(credentialsId, run.getParent());
+        String token = NotiferCredentials.lookupToken(credentialsId, run.getParent());
         if (token == null || token.isEmpty()) {
             logger.println("[Notifer] ERROR: Could not retrieve token from credentials: " + credentialsId);
             return;
@@ -209,34 +223,34 @@ public class NotiferNotifier extends Notifier implements SimpleBuildStep {
         logger.println("[Notifer] Sending notification to topic: " + resolvedTopic);
         logger.println("[Notifer] Message: " + resolvedMessage.replace("\n", "\\n").replace("\r", "\\r"));
 
+        NotiferClient client = new NotiferClient(token);
+        // Numbered, a run may invoke the publisher more than once, e.g. through a Pipeline step
+        String idempotencyKey = NotiferIdempotency.key(run, "post-build-" + NotiferRunAction.nextInvocation(run));
+
+        if (async) {
+            NotiferDispatcher.enqueue(run, client, resolvedTopic, resolvedMessage, resolvedTitle, resolvedPriority,
+                    tagList, idempotencyKey);
+            logger.println("[Notifer] Notification queued for background delivery");
+            return;
+        }
+
         try {
-            NotiferClient client = new NotiferClient(token);
             NotiferClient.NotiferResponse response = client.send(
-                    resolvedTopic, resolvedMessage, resolvedTitle, resolvedPriority, tagList
+                    resolvedTopic, resolvedMessage, resolvedTitle, resolvedPriority, tagList,
+                    NotiferClient.ResponseMode.ID_ONLY, idempotencyKey
             );
+            NotiferRunAction.record(run, resolvedTopic, response, null);
             logger.println("[Notifer] Notification sent successfully. ID: " + response.getId());
 
+        } catch (LoadShedding.CollapsedException e) {
+            NotiferRunAction.record(run, resolvedTopic, null, e);
+            logger.println("[Notifer] " + e.getMessage());
         } catch (NotiferClient.NotiferException e) {
+            NotiferRunAction.record(run, resolvedTopic, null, e);
             logger.println("[Notifer] Failed to send notification: " + e.getMessage());
         }
     }
 
-    private String getTokenFromCredentials(String credentialsId, Item item) {
-        StringCredentials credentials = CredentialsMatchers.firstOrNull(
-                CredentialsProvider.lookupCredentials(
-                        StringCredentials.class,
-                        item,
-                        item instanceof hudson.model.Queue.Task
-                                ? ((hudson.model.Queue.Task) item).getDefaultAuthentication()
-                                : ACL.SYSTEM,
-                        Collections.emptyList()
-                ),
-                CredentialsMatchers.withId(credentialsId)
-        );
-
-        return credentials != null ? credentials.getSecret().getPlainText() : null;
-    }
-
     private boolean shouldNotify(Result result) {
         if (result == null) {
             return notifySuccess; // Still running, treat as success
@@ -386,8 +400,8 @@ public class NotiferNotifier extends Notifier implements SimpleBuildStep {
                     .includeEmptyValue()
                     .includeMatchingAs(
                             item instanceof hudson.model.Queue.Task
-                                    ? ((hudson.model.Queue.Task) item).getDefaultAuthentication()
-                                    : ACL.SYSTEM,
+                                    ? ((hudson.model.Queue.Task) item).getDefaultAuthentication2()
+                                    : ACL.SYSTEM2,
                             item,
                             StringCredentials.class,
                             Collections.emptyList(),
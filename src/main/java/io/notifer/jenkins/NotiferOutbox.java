@@ -0,0 +1,439 @@
+package io.notifer.jenkins;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import hudson.Extension;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import hudson.model.PeriodicWork;
+import hudson.model.Run;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.Secret;
+import jenkins.model.Jenkins;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Durable outbox for notifications delivered in the background.
+ *
+ * Notifications are written to an {@link OutboxJournal} under JENKINS_HOME before delivery is
+ * attempted, and acknowledged in the journal once the Notifer API accepted them or rejected them
+ * for good. Pending notifications are replayed when Jenkins starts and retried by a periodic
+ * drainer, so neither a controller restart nor an API outage loses them. Segments are deleted
+ * once every notification they hold has been acknowledged.
+ */
+public final class NotiferOutbox {
+    private static final Logger LOGGER = Logger.getLogger(NotiferOutbox.class.getName());
+    private static final Gson GSON = new GsonBuilder().create();
+
+    static final String DIRECTORY = "notifer-outbox";
+    static final long SEGMENT_BYTES = 4 * 1024 * 1024;
+
+    /** Notifications still undelivered after this long are dropped */
+    static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    static final byte ENQUEUE = 1;
+    static final byte ACK = 2;
+
+    /**
+     * Storage backends for the outbox journal.
+     */
+    public enum Backend {
+        /** Append through a file channel and force every record to disk */
+        FILE,
+        /** Append into memory-mapped segments and force them in groups */
+        MAPPED
+    }
+
+    private static NotiferOutbox instance;
+
+    private final OutboxJournal journal;
+    private final NavigableMap<Long, Entry> pending = new ConcurrentSkipListMap<>();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    /** A lock rather than a monitor: it is held across disk writes, which would pin a virtual thread's carrier */
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final TreeSet<Long> segments = new TreeSet<>();
+    private final Map<Long, Integer> pendingPerSegment = new HashMap<>();
+    private long nextSequence = 1;
+    /** Oldest segment that could not be deleted, reported once instead of on every acknowledgement */
+    private long undeletableSegment;
+
+    private NotiferOutbox(OutboxJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Get the outbox new notifications should be written to.
+     *
+     * @return The outbox, or null if durable delivery is disabled or the outbox cannot be opened
+     */
+    static NotiferOutbox get() {
+        if (Jenkins.getInstanceOrNull() == null || !NotiferGlobalConfiguration.get().isDurableOutbox()) {
+            return null;
+        }
+        synchronized (NotiferOutbox.class) {
+            if (instance == null) {
+                try {
+                    instance = open();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to open the Notifer outbox", e);
+                }
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Get the outbox if it has been opened, also when durable delivery was disabled since.
+     */
+    static synchronized NotiferOutbox current() {
+        return instance;
+    }
+
+    private static NotiferOutbox open() throws IOException {
+        NotiferGlobalConfiguration config = NotiferGlobalConfiguration.get();
+        OutboxJournal journal;
+        if (config.getOutboxBackend() == Backend.MAPPED) {
+            journal = new MappedOutboxJournal(directory(), SEGMENT_BYTES,
+                    config.getOutboxSyncIntervalMillis(), config.getOutboxSyncBatchSize());
+        } else {
+            journal = new FileOutboxJournal(directory(), SEGMENT_BYTES);
+        }
+        return open(journal);
+    }
+
+    /**
+     * Open an outbox on a journal, replaying the notifications still pending in it.
+     */
+    static NotiferOutbox open(OutboxJournal journal) throws IOException {
+        NotiferOutbox outbox = new NotiferOutbox(journal);
+        outbox.replay();
+        return outbox;
+    }
+
+    private static Path directory() {
+        return Jenkins.get().getRootDir().toPath().resolve(DIRECTORY);
+    }
+
+    /**
+     * Replay pending notifications once jobs are loaded, so results can be recorded on their runs.
+     * Leftovers are delivered even if durable delivery has been disabled since they were written.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED, fatal = false)
+    public static void replayOnStartup() throws IOException {
+        Path directory = directory();
+        boolean leftovers = false;
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                leftovers = files.anyMatch(p -> p.getFileName().toString().endsWith(OutboxJournal.SEGMENT_SUFFIX));
+            }
+        }
+        if (!leftovers && !NotiferGlobalConfiguration.get().isDurableOutbox()) {
+            return;
+        }
+
+        NotiferOutbox outbox;
+        synchronized (NotiferOutbox.class) {
+            if (instance == null) {
+                instance = open();
+            }
+            outbox = instance;
+        }
+        LOGGER.log(Level.INFO, "Replaying {0} pending notifications from the Notifer outbox", outbox.getPendingCount());
+        outbox.drain();
+    }
+
+    @Terminator
+    public static void shutdown() {
+        NotiferOutbox outbox;
+        synchronized (NotiferOutbox.class) {
+            outbox = instance;
+            instance = null;
+        }
+        if (outbox != null) {
+            try {
+                outbox.journal.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close the Notifer outbox", e);
+            }
+        }
+    }
+
+    /**
+     * Write a notification to the outbox and start delivering it.
+     *
+     * @throws IOException if the notification could not be written
+     */
+    void enqueue(Run<?, ?> run, String token, String topic, String message, String title, int priority,
+                 List<String> tags, String idempotencyKey) throws IOException {
+        Message m = new Message(run != null ? run.getExternalizableId() : null,
+                Secret.fromString(token).getEncryptedValue(), topic, message, title, priority, tags,
+                idempotencyKey, System.currentTimeMillis());
+        byte[] data = GSON.toJson(m).getBytes(StandardCharsets.UTF_8);
+
+        Entry entry;
+        lock.lock();
+        try {
+            long sequence = nextSequence++;
+            long segment = journal.append(record(ENQUEUE, sequence, data));
+            entry = new Entry(sequence, segment, m);
+            pending.put(sequence, entry);
+            segments.add(segment);
+            pendingPerSegment.merge(segment, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+        deliver(entry);
+    }
+
+    /**
+     * Retry every pending notification that is not currently being delivered.
+     */
+    void drain() {
+        long now = System.currentTimeMillis();
+        for (Entry entry : pending.values()) {
+            if (now - entry.message.enqueuedAt > MAX_AGE_MILLIS) {
+                if (inFlight.add(entry.sequence)) {
+                    acknowledge(entry);
+                    recordResult(entry, null, new NotiferClient.NotiferException(
+                            "Notification expired in the outbox before it could be delivered", (Throwable) null));
+                }
+            } else {
+                deliver(entry);
+            }
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void deliver(Entry entry) {
+        if (!inFlight.add(entry.sequence)) {
+            return;
+        }
+
+        Message m = entry.message;
+        Secret token = Secret.decrypt(m.token);
+        if (token == null) {
+            // Written with a different Jenkins secret key, it can never be delivered
+            acknowledge(entry);
+            recordResult(entry, null, new NotiferClient.NotiferException(
+                    "Topic token in the outbox could not be decrypted", (Throwable) null));
+            return;
+        }
+
+        NotiferClient client = new NotiferClient(token.getPlainText());
+        client.sendAsync(m.topic, m.message, m.title, m.priority, m.tags,
+                NotiferClient.ResponseMode.ID_ONLY, m.idempotencyKey).whenComplete((response, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause == null || isPermanent(cause)) {
+                acknowledge(entry);
+                recordResult(entry, response, cause);
+            } else {
+                inFlight.remove(entry.sequence);
+                LOGGER.log(Level.FINE, "Outbox notification {0} not delivered yet, will retry: {1}",
+                        new Object[] {entry.sequence, cause.getMessage()});
+            }
+        });
+    }
+
+    /**
+     * Client errors other than timeouts and rate limiting will not go away by retrying.
+     * Neither are shed notifications sent again.
+     */
+    private static boolean isPermanent(Throwable failure) {
+        if (!(failure instanceof NotiferClient.NotiferException) || failure instanceof LoadShedding.ShedException) {
+            return true;
+        }
+        int status = ((NotiferClient.NotiferException) failure).getStatusCode();
+        return status >= 400 && status < 500 && status != 408 && status != 429;
+    }
+
+    private void acknowledge(Entry entry) {
+        lock.lock();
+        try {
+            if (pending.remove(entry.sequence) == null) {
+                return;
+            }
+            try {
+                segments.add(journal.append(record(ACK, entry.sequence, new byte[0])));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to acknowledge Notifer outbox entry " + entry.sequence
+                        + ", it may be delivered again after a restart", e);
+            }
+            if (pendingPerSegment.merge(entry.segment, -1, Integer::sum) <= 0) {
+                pendingPerSegment.remove(entry.segment);
+            }
+            compact();
+        } finally {
+            lock.unlock();
+        }
+        inFlight.remove(entry.sequence);
+    }
+
+    /**
+     * Delete the oldest segments once all notifications they hold are acknowledged.
+     * Only a prefix is deleted, so acknowledgements for older segments are never lost.
+     */
+    private void compact() {
+        long active = journal.activeSegment();
+        while (!segments.isEmpty()) {
+            long oldest = segments.first();
+            if (oldest >= active || pendingPerSegment.containsKey(oldest)) {
+                return;
+            }
+            try {
+                journal.delete(oldest);
+            } catch (IOException e) {
+                // Retried on the next acknowledgement; newer segments wait so that no acknowledgement is lost
+                if (undeletableSegment != oldest) {
+                    undeletableSegment = oldest;
+                    LOGGER.log(Level.WARNING, "Failed to delete Notifer outbox segment " + oldest, e);
+                } else {
+                    LOGGER.log(Level.FINE, "Failed to delete Notifer outbox segment " + oldest, e);
+                }
+                return;
+            }
+            segments.pollFirst();
+        }
+    }
+
+    private void replay() throws IOException {
+        lock.lock();
+        try {
+            for (long segment : journal.segments()) {
+                segments.add(segment);
+                journal.read(segment, body -> {
+                    ByteBuffer buffer = ByteBuffer.wrap(body);
+                    byte type = buffer.get();
+                    long sequence = buffer.getLong();
+                    nextSequence = Math.max(nextSequence, sequence + 1);
+
+                    if (type == ENQUEUE) {
+                        String json = new String(body, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+                        pending.put(sequence, new Entry(sequence, segment, GSON.fromJson(json, Message.class)));
+                        pendingPerSegment.merge(segment, 1, Integer::sum);
+                    } else if (type == ACK) {
+                        Entry entry = pending.remove(sequence);
+                        if (entry != null && pendingPerSegment.merge(entry.segment, -1, Integer::sum) <= 0) {
+                            pendingPerSegment.remove(entry.segment);
+                        }
+                    }
+                });
+            }
+            compact();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static byte[] record(byte type, long sequence, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + Long.BYTES + data.length);
+        buffer.put(type);
+        buffer.putLong(sequence);
+        buffer.put(data);
+        return buffer.array();
+    }
+
+    private static void recordResult(Entry entry, NotiferClient.NotiferResponse response, Throwable error) {
+        Run<?, ?> run = null;
+        if (entry.message.runId != null) {
+            // Looked up by ID, an entry may wait for a day and must not keep its build loaded meanwhile
+            try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+                run = Run.fromExternalizableId(entry.message.runId);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Could not find run " + entry.message.runId, e);
+            }
+        }
+        if (run != null) {
+            NotiferRunAction.record(run, entry.message.topic, response, error);
+        }
+    }
+
+    /**
+     * Retries pending outbox notifications, e.g. after an API outage.
+     */
+    @Extension
+    public static class Drainer extends PeriodicWork {
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void doRun() {
+            NotiferOutbox outbox = current();
+            if (outbox != null) {
+                outbox.drain();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long sequence;
+        private final long segment;
+        private final Message message;
+
+        Entry(long sequence, long segment, Message message) {
+            this.sequence = sequence;
+            this.segment = segment;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Notification as persisted in the journal. The topic token is stored encrypted.
+     */
+    private static final class Message {
+        private String runId;
+        private String token;
+        private String topic;
+        private String message;
+        private String title;
+        private int priority;
+        private List<String> tags;
+        /** Null in records written before idempotency keys were introduced */
+        private String idempotencyKey;
+        private long enqueuedAt;
+
+        Message() {
+        }
+
+        Message(String runId, String token, String topic, String message, String title, int priority,
+                List<String> tags, String idempotencyKey, long enqueuedAt) {
+            this.runId = runId;
+            this.token = token;
+            this.topic = topic;
+            this.message = message;
+            this.title = title;
+            this.priority = priority;
+            this.tags = tags;
+            this.idempotencyKey = idempotencyKey;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
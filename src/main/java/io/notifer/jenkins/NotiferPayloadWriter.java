@@ -0,0 +1,176 @@
+package io.notifer.jenkins;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Streaming JSON encoder for notification payloads.
+ *
+ * Writes the known fields straight into a UTF-8 byte array instead of building a map, serializing
+ * it reflectively into a String and encoding that again. A first pass only counts the bytes, so
+ * the second one writes into an array of the exact size and nothing is buffered or copied; no
+ * per-thread state is kept, which would not pay off on short-lived virtual threads.
+ */
+final class NotiferPayloadWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /** Null while measuring */
+    private final byte[] buffer;
+    private int length;
+
+    private NotiferPayloadWriter(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Encode a notification payload as UTF-8 JSON.
+     *
+     * @param message  Message content
+     * @param title    Optional title (can be null)
+     * @param priority Priority, clamped to 1-5
+     * @param tags     Optional list of tags (can be null or empty)
+     * @return Encoded payload
+     */
+    static byte[] write(String message, String title, int priority, List<String> tags) {
+        NotiferPayloadWriter measure = new NotiferPayloadWriter(null);
+        measure.encode(message, title, priority, tags);
+        NotiferPayloadWriter writer = new NotiferPayloadWriter(new byte[measure.length]);
+        writer.encode(message, title, priority, tags);
+        return writer.buffer;
+    }
+
+    private void encode(String message, String title, int priority, List<String> tags) {
+        length = 0;
+        writeByte('{');
+
+        boolean first = true;
+        if (message != null) {
+            writeName("message", first);
+            writeString(message);
+            first = false;
+        }
+
+        if (title != null && !title.isEmpty()) {
+            writeName("title", first);
+            writeString(title);
+            first = false;
+        }
+
+        // Clamp priority to valid range
+        writeName("priority", first);
+        writeByte('0' + Math.max(1, Math.min(5, priority)));
+
+        if (tags != null && !tags.isEmpty()) {
+            writeName("tags", false);
+            writeByte('[');
+            for (int i = 0; i < tags.size(); i++) {
+                if (i > 0) {
+                    writeByte(',');
+                }
+                writeString(tags.get(i));
+            }
+            writeByte(']');
+        }
+
+        writeByte('}');
+    }
+
+    private void writeName(String name, boolean first) {
+        if (!first) {
+            writeByte(',');
+        }
+        writeString(name);
+        writeByte(':');
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            writeAscii("null");
+            return;
+        }
+
+        writeByte('"');
+        int n = value.length();
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                writeAsciiChar(c);
+            } else if (c < 0x800) {
+                writeByte(0xc0 | (c >> 6));
+                writeByte(0x80 | (c & 0x3f));
+            } else if (c == 0x2028 || c == 0x2029) {
+                // Line and paragraph separators are valid JSON but not valid in JavaScript string literals
+                writeUnicodeEscape(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writeByte(0xf0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                writeByte(0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, replaced like String.getBytes does
+                writeByte('?');
+            } else {
+                writeByte(0xe0 | (c >> 12));
+                writeByte(0x80 | ((c >> 6) & 0x3f));
+                writeByte(0x80 | (c & 0x3f));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeAsciiChar(char c) {
+        switch (c) {
+            case '"':
+                writeAscii("\\\"");
+                break;
+            case '\\':
+                writeAscii("\\\\");
+                break;
+            case '\n':
+                writeAscii("\\n");
+                break;
+            case '\r':
+                writeAscii("\\r");
+                break;
+            case '\t':
+                writeAscii("\\t");
+                break;
+            case '\b':
+                writeAscii("\\b");
+                break;
+            case '\f':
+                writeAscii("\\f");
+                break;
+            default:
+                if (c < 0x20) {
+                    writeUnicodeEscape(c);
+                } else {
+                    writeByte(c);
+                }
+        }
+    }
+
+    private void writeUnicodeEscape(char c) {
+        writeByte('\\');
+        writeByte('u');
+        writeByte(HEX[(c >> 12) & 0xf]);
+        writeByte(HEX[(c >> 8) & 0xf]);
+        writeByte(HEX[(c >> 4) & 0xf]);
+        writeByte(HEX[c & 0xf]);
+    }
+
+    private void writeAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            writeByte(s.charAt(i));
+        }
+    }
+
+    private void writeByte(int b) {
+        if (buffer != null) {
+            buffer[length] = (byte) b;
+        }
+        length++;
+    }
+}
@@ -0,0 +1,161 @@
+package io.notifer.jenkins;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivery results of the notifications sent for a run.
+ * Rendered on the build page through summary.jelly.
+ */
+public class NotiferRunAction extends InvisibleAction {
+    private static final Logger LOGGER = Logger.getLogger(NotiferRunAction.class.getName());
+
+    /** Keep build.xml small for runs that send a lot of notifications */
+    private static final int MAX_DELIVERIES = 100;
+
+    private static final Object ATTACH_LOCK = new Object();
+
+    /**
+     * Added to from delivery threads while the build may be saving build.xml, which iterates the
+     * list without our lock; copy-on-write gives that iteration a consistent snapshot.
+     */
+    private List<Delivery> deliveries = new CopyOnWriteArrayList<>();
+    /** Invocations of the post-build action so far, persisted so numbering continues after a restart */
+    private int invocations;
+
+    public List<Delivery> getDeliveries() {
+        return new ArrayList<>(deliveries);
+    }
+
+    /**
+     * Older build.xml files deserialize the list as an ArrayList.
+     */
+    protected Object readResolve() {
+        if (!(deliveries instanceof CopyOnWriteArrayList)) {
+            deliveries = new CopyOnWriteArrayList<>(deliveries != null ? deliveries : List.of());
+        }
+        return this;
+    }
+
+    /**
+     * Synchronized so the cap holds with concurrent deliveries.
+     */
+    private synchronized void add(Delivery delivery) {
+        if (deliveries.size() >= MAX_DELIVERIES) {
+            deliveries.remove(0);
+        }
+        deliveries.add(delivery);
+    }
+
+    /**
+     * Number an invocation of the post-build action within the run, starting at 1.
+     */
+    static int nextInvocation(Run<?, ?> run) {
+        NotiferRunAction action = attach(run);
+        synchronized (action) {
+            return ++action.invocations;
+        }
+    }
+
+    /**
+     * Record the result of a delivery on the run.
+     * Runs that already completed are saved right away, running builds are saved when they finish.
+     */
+    static void record(Run<?, ?> run, String topic, NotiferClient.NotiferResponse response, Throwable error) {
+        NotiferRunAction action = attach(run);
+
+        Delivery delivery;
+        if (error instanceof LoadShedding.CollapsedException) {
+            delivery = new Delivery(System.currentTimeMillis(), topic,
+                    ((LoadShedding.CollapsedException) error).getSummaryId(), null, false, true);
+        } else {
+            String errorMessage = null;
+            if (error instanceof CancellationException) {
+                errorMessage = "Cancelled";
+            } else if (error != null) {
+                errorMessage = error.getMessage();
+            }
+            delivery = new Delivery(System.currentTimeMillis(), topic,
+                    response != null ? response.getId() : null, errorMessage, error != null, false);
+        }
+        action.add(delivery);
+
+        if (!run.isBuilding()) {
+            try {
+                run.save();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to save Notifer delivery result for " + run, e);
+            }
+        }
+    }
+
+    private static NotiferRunAction attach(Run<?, ?> run) {
+        synchronized (ATTACH_LOCK) {
+            NotiferRunAction action = run.getAction(NotiferRunAction.class);
+            if (action == null) {
+                action = new NotiferRunAction();
+                run.addAction(action);
+            }
+            return action;
+        }
+    }
+
+    /**
+     * Result of a single notification delivery.
+     */
+    public static class Delivery {
+        private final long timestamp;
+        private final String topic;
+        private final String id;
+        private final String error;
+        private final boolean failed;
+        /** Shed into a load-shedding summary, the ID is that of the summary */
+        private final boolean collapsed;
+
+        Delivery(long timestamp, String topic, String id, String error, boolean failed, boolean collapsed) {
+            this.timestamp = timestamp;
+            this.topic = topic;
+            this.id = id;
+            this.error = error;
+            this.failed = failed;
+            this.collapsed = collapsed;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Date getDate() {
+            return new Date(timestamp);
+        }
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        public boolean isCollapsed() {
+            return collapsed;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.notifer.jenkins;
+
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import hudson.security.Permission;
+import jenkins.model.Jenkins;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.List;
+
+/**
+ * Management page showing the health of Notifer delivery to administrators.
+ */
+@Extension
+public class NotiferStatusLink extends ManagementLink {
+
+    @Override
+    public String getIconFileName() {
+        return "symbol-notifications-outline plugin-ionicons-api";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Notifer Delivery";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "notifer";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Endpoint health, concurrency limits and delivery statistics for the Notifer API";
+    }
+
+    @NonNull
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.ADMINISTER;
+    }
+
+    @NonNull
+    @Override
+    public Category getCategory() {
+        return Category.STATUS;
+    }
+
+    public List<NotiferEndpoints.Endpoint> getEndpoints() {
+        return NotiferEndpoints.all();
+    }
+
+    public List<Bulkhead> getBulkheads() {
+        return Bulkhead.all();
+    }
+
+    public AdaptiveConcurrencyLimit getAdaptiveConcurrencyLimit() {
+        return AdaptiveConcurrencyLimit.get();
+    }
+
+    public long getCollapsedCount() {
+        return LoadShedding.getCollapsedCount();
+    }
+
+    public long getCollapseSummariesSent() {
+        return LoadShedding.getSummariesSent();
+    }
+
+    /**
+     * Current hedging delay in milliseconds, -1 while there is not enough latency history.
+     */
+    public long getHedgeDelayMillis() {
+        return RequestHedging.getHedgeDelayMillis();
+    }
+
+    public long getHedgesSent() {
+        return RequestHedging.getHedgesSent();
+    }
+
+    public long getHedgesWon() {
+        return RequestHedging.getHedgesWon();
+    }
+
+    /**
+     * Notifications waiting in the durable outbox, or -1 if the outbox is not in use.
+     */
+    public int getOutboxPendingCount() {
+        NotiferOutbox outbox = NotiferOutbox.current();
+        return outbox != null ? outbox.getPendingCount() : -1;
+    }
+
+    public int getDispatcherPendingCount() {
+        return NotiferDispatcher.getPendingCount();
+    }
+}
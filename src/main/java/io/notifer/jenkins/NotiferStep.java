@@ -14,6 +14,7 @@ import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import jenkins.model.Jenkins;
 import org.jenkinsci.plugins.plaincredentials.StringCredentials;
+import org.jenkinsci.plugins.workflow.graph.FlowNode;
 import org.jenkinsci.plugins.workflow.steps.*;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -23,9 +24,13 @@ import org.kohsuke.stapler.verb.POST;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Pipeline step for sending notifications to Notifer.
@@ -38,7 +43,8 @@ import java.util.*;
  *     message: 'Build completed',
  *     title: 'Jenkins Build',
  *     priority: 3,
- *     tags: ['jenkins', 'build']
+ *     tags: ['jenkins', 'build'],
+ *     wait: true
  * )
  * </pre>
  */
@@ -52,6 +58,7 @@ public class NotiferStep extends Step implements Serializable {
     private int priority = 0; // 0 = auto-detect based on result
     private String tags;
     private boolean failOnError = false;
+    private boolean wait = true;
 
     /**
      * Constructor with required parameters.
@@ -94,6 +101,10 @@ public class NotiferStep extends Step implements Serializable {
         return failOnError;
     }
 
+    public boolean isWait() {
+        return wait;
+    }
+
     // --- Setters ---
 
     @DataBoundSetter
@@ -138,6 +149,15 @@ public class NotiferStep extends Step implements Serializable {
         this.failOnError = failOnError;
     }
 
+    /**
+     * When false, the notification is queued for background delivery and the step
+     * returns right away. The delivery result is recorded on the run.
+     */
+    @DataBoundSetter
+    public void setWait(boolean wait) {
+        this.wait = wait;
+    }
+
     @Override
     public StepExecution start(StepContext context) throws Exception {
         return new NotiferStepExecution(this, context);
@@ -145,29 +165,56 @@ public class NotiferStep extends Step implements Serializable {
 
     /**
      * Step execution implementation.
+     * The notification is prepared on the {@link NotiferDeliveryExecutor}, not on the CPS VM thread.
+     * The HTTP call is asynchronous and the step context is completed from its callback,
+     * so a pending notification does not hold a thread.
      */
     @SuppressFBWarnings(value = "SE_TRANSIENT_FIELD_NOT_RESTORED",
-            justification = "Step execution is synchronous and completes immediately, no serialization needed")
-    private static class NotiferStepExecution extends SynchronousNonBlockingStepExecution<NotiferClient.NotiferResponse> {
+            justification = "An in-flight notification is not resumable, onResume completes the step without it")
+    private static class NotiferStepExecution extends StepExecution {
         private static final long serialVersionUID = 1L;
 
         private final transient NotiferStep step;
+        private final boolean failOnError;
+        private transient volatile CompletableFuture<NotiferClient.NotiferResponse> pending;
+        private transient volatile boolean stopped;
 
         NotiferStepExecution(NotiferStep step, StepContext context) {
             super(context);
             this.step = step;
+            this.failOnError = step.failOnError;
         }
 
         @Override
-        protected NotiferClient.NotiferResponse run() throws Exception {
+        public boolean start() throws Exception {
             TaskListener listener = getContext().get(TaskListener.class);
             Run<?, ?> run = getContext().get(Run.class);
             EnvVars envVars = getContext().get(EnvVars.class);
-            PrintStream logger = listener.getLogger();
+            FlowNode node = getContext().get(FlowNode.class);
+
+            // The credential lookup and the outbox write block, keep them off the CPS VM thread
+            try {
+                NotiferDeliveryExecutor.get().execute(() -> {
+                    try {
+                        send(run, listener.getLogger(), envVars, node);
+                    } catch (Exception e) {
+                        getContext().onFailure(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                throw new NotiferClient.NotiferException("Jenkins is shutting down, notification not sent", e);
+            }
+            return false;
+        }
+
+        private void send(Run<?, ?> run, PrintStream logger, EnvVars envVars, FlowNode node) {
+            if (stopped) {
+                return;
+            }
             Result result = run.getResult();
 
             // Get token from credentials
-            String token = getTokenFromCredentials(step.credentialsId, run.getParent());
+            String token = NotiferCredentials.lookupToken(step.credentialsId, run.getParent());
             if (token == null || token.isEmpty()) {
                 throw new IllegalArgumentException("Could not retrieve token from credentials: " + step.credentialsId);
             }
@@ -197,43 +244,94 @@ public class NotiferStep extends Step implements Serializable {
             // Parse tags from comma-separated string
             List<String> tags = parseTags(step.tags, result, envVars);
 
+            NotiferClient client = new NotiferClient(token);
+            // The flow node identifies this step invocation; a retried block gets new nodes
+            String idempotencyKey = NotiferIdempotency.key(run, node != null ? node.getId() : "step");
+
+            if (!step.wait) {
+                logger.println("[Notifer] Queued notification to topic: " + topic);
+                NotiferDispatcher.enqueue(run, client, topic, message, title, priority, tags, idempotencyKey);
+                getContext().onSuccess(null);
+                return;
+            }
+
             logger.println("[Notifer] Sending notification to topic: " + topic);
 
+            // The full response is the step's return value
+            CompletableFuture<NotiferClient.NotiferResponse> future = NotiferDispatcher.dispatch(run, client, topic,
+                    message, title, priority, tags, NotiferClient.ResponseMode.FULL, idempotencyKey);
+            pending = future;
+            if (stopped) {
+                // Stopped while the notification was being prepared
+                future.cancel(true);
+                return;
+            }
+            future.whenComplete((response, error) -> {
+                if (error == null) {
+                    logger.println("[Notifer] Notification sent successfully. ID: " + response.getId());
+                    getContext().onSuccess(response);
+                } else if (!(error instanceof CancellationException)) {
+                    onError(error, logger);
+                }
+            });
+        }
+
+        @Override
+        public void stop(@NonNull Throwable cause) throws Exception {
+            stopped = true;
+            CompletableFuture<NotiferClient.NotiferResponse> future = pending;
+            if (future != null) {
+                future.cancel(true);
+            }
+            getContext().onFailure(cause);
+        }
+
+        @Override
+        public void onResume() {
+            // The HTTP exchange did not survive the restart and the step parameters are not persisted
+            PrintStream logger = null;
             try {
-                NotiferClient client = new NotiferClient(token);
-                NotiferClient.NotiferResponse response = client.send(topic, message, title, priority, tags);
+                logger = getContext().get(TaskListener.class).getLogger();
+            } catch (IOException e) {
+                // Still reported through the step context below
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            onError(new NotiferClient.NotiferException(
+                    "Jenkins restarted before the Notifer API responded", null), logger);
+        }
+
+        @Override
+        public String getStatus() {
+            return "Waiting for Notifer API response";
+        }
 
-                logger.println("[Notifer] Notification sent successfully. ID: " + response.getId());
-                return response;
+        private void onError(Throwable error, PrintStream logger) {
+            if (!(error instanceof NotiferClient.NotiferException)) {
+                getContext().onFailure(error);
+                return;
+            }
+            if (error instanceof LoadShedding.CollapsedException) {
+                // Reported by the summary, not a delivery failure
+                if (logger != null) {
+                    logger.println("[Notifer] " + error.getMessage());
+                }
+                getContext().onSuccess(null);
+                return;
+            }
 
-            } catch (NotiferClient.NotiferException e) {
-                String errorMessage = "[Notifer] Failed to send notification: " + e.getMessage();
+            String errorMessage = "[Notifer] Failed to send notification: " + error.getMessage();
 
-                if (step.failOnError) {
-                    throw new RuntimeException(errorMessage, e);
-                } else {
+            if (failOnError) {
+                getContext().onFailure(new RuntimeException(errorMessage, error));
+            } else {
+                if (logger != null) {
                     logger.println(errorMessage);
-                    return null;
                 }
+                getContext().onSuccess(null);
             }
         }
 
-        private String getTokenFromCredentials(String credentialsId, Item item) {
-            StringCredentials credentials = CredentialsMatchers.firstOrNull(
-                    CredentialsProvider.lookupCredentials(
-                            StringCredentials.class,
-                            item,
-                            item instanceof hudson.model.Queue.Task
-                                    ? ((hudson.model.Queue.Task) item).getDefaultAuthentication()
-                                    : ACL.SYSTEM,
-                            Collections.emptyList()
-                    ),
-                    CredentialsMatchers.withId(credentialsId)
-            );
-
-            return credentials != null ? credentials.getSecret().getPlainText() : null;
-        }
-
         @SuppressFBWarnings(value = "VA_FORMAT_STRING_USES_NEWLINE",
                 justification = "Intentional \\n for notification message format, not console output")
         private String buildDefaultMessage(Run<?, ?> run, Result result) {
@@ -374,8 +472,8 @@ public class NotiferStep extends Step implements Serializable {
                     .includeEmptyValue()
                     .includeMatchingAs(
                             item instanceof hudson.model.Queue.Task
-                                    ? ((hudson.model.Queue.Task) item).getDefaultAuthentication()
-                                    : ACL.SYSTEM,
+                                    ? ((hudson.model.Queue.Task) item).getDefaultAuthentication2()
+                                    : ACL.SYSTEM2,
                             item,
                             StringCredentials.class,
                             Collections.emptyList(),
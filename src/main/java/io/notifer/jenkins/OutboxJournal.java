@@ -0,0 +1,144 @@
+package io.notifer.jenkins;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented record log backing the {@link NotiferOutbox}.
+ *
+ * Each segment is a file named after its index. A record is framed as
+ * {@code [int length][int crc32][body]}; reading a segment stops at the first truncated or
+ * corrupt record, which is what a torn write at the tail looks like after a crash.
+ * Subclasses decide how records reach the disk and when they are forced.
+ */
+abstract class OutboxJournal implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(OutboxJournal.class.getName());
+
+    static final int HEADER_BYTES = 8;
+    static final String SEGMENT_SUFFIX = ".log";
+
+    protected final Path directory;
+    protected final long segmentBytes;
+
+    OutboxJournal(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Append a record to the active segment, rolling over to a new segment when it is full.
+     *
+     * @return Index of the segment the record was written to
+     */
+    abstract long append(byte[] body) throws IOException;
+
+    /**
+     * Index of the segment appends currently go to.
+     */
+    abstract long activeSegment();
+
+    /**
+     * Indexes of all segments on disk, oldest first.
+     */
+    List<Long> segments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    LOGGER.log(Level.FINE, "Ignoring unexpected file in Notifer outbox: {0}", path);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Read all intact records of a segment, in order.
+     */
+    void read(long segment, RecordVisitor visitor) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            data = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, channel.size()));
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // keep reading
+            }
+        }
+        data.flip();
+        readRecords(segment, data, visitor);
+    }
+
+    /**
+     * Parse framed records from a buffer until the end of valid data.
+     */
+    static void readRecords(long segment, ByteBuffer data, RecordVisitor visitor) throws IOException {
+        data.order(ByteOrder.BIG_ENDIAN);
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= HEADER_BYTES) {
+            int start = data.position();
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                // Zero fill at the end of a pre-allocated segment, or a torn write
+                data.position(start);
+                break;
+            }
+            byte[] body = new byte[length];
+            data.get(body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                LOGGER.log(Level.WARNING, "Corrupt record in Notifer outbox segment {0} at offset {1}, skipping the rest",
+                        new Object[] {segment, start});
+                break;
+            }
+            visitor.visit(body);
+        }
+    }
+
+    void delete(long segment) throws IOException {
+        Files.deleteIfExists(segmentPath(segment));
+    }
+
+    Path segmentPath(long segment) {
+        return directory.resolve(String.format("%016d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Frame a record body with its length and checksum.
+     */
+    static ByteBuffer frame(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + body.length);
+        buffer.putInt(body.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(body);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Callback for records read from a segment.
+     */
+    interface RecordVisitor {
+        void visit(byte[] body) throws IOException;
+    }
+}
@@ -0,0 +1,145 @@
+package io.notifer.jenkins;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wait queue of a {@link Bulkhead}, ordered by notification priority (1-5).
+ *
+ * Keeps one FIFO per priority. The next waiter comes from the queue whose head has the highest
+ * effective priority: its own priority raised by one level for every aging interval it has
+ * waited. Low priorities are delayed while high ones are waiting, but never starved.
+ * Not thread-safe; guarded by the owning bulkhead.
+ */
+final class PriorityWaitQueue {
+    static final int LEVELS = 5;
+    static final long DEFAULT_AGING_MILLIS = 10_000;
+
+    private final List<Deque<Waiter>> queues = new ArrayList<>(LEVELS);
+    private long agingNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_AGING_MILLIS);
+    private int size;
+
+    PriorityWaitQueue() {
+        for (int i = 0; i < LEVELS; i++) {
+            queues.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * @param agingMillis wait after which a waiter moves up one priority level, 0 for strict priority order
+     */
+    void setAgingMillis(long agingMillis) {
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, agingMillis));
+    }
+
+    /**
+     * @param onShed called if the waiter is evicted by {@link #evictOldest(int)}, null if it must not be
+     */
+    void add(int priority, Runnable task, Runnable onShed) {
+        queues.get(level(priority)).add(new Waiter(priority, task, onShed, System.nanoTime()));
+        size++;
+    }
+
+    /**
+     * Remove the longest-waiting sheddable waiter with at most the given priority.
+     *
+     * @return the removed waiter, or null if there is none
+     */
+    Waiter evictOldest(int maxPriority) {
+        Deque<Waiter> from = null;
+        Waiter oldest = null;
+        for (int level = 0; level <= level(maxPriority); level++) {
+            for (Waiter waiter : queues.get(level)) {
+                if (waiter.onShed != null) {
+                    if (oldest == null || waiter.since < oldest.since) {
+                        from = queues.get(level);
+                        oldest = waiter;
+                    }
+                    // Later waiters of the same level are younger
+                    break;
+                }
+            }
+        }
+        if (oldest == null) {
+            return null;
+        }
+        from.remove(oldest);
+        size--;
+        return oldest;
+    }
+
+    /**
+     * Remove the waiter to run next.
+     *
+     * @return its task, or null if the queue is empty
+     */
+    Runnable poll() {
+        long now = System.nanoTime();
+        Deque<Waiter> next = null;
+        double nextPriority = 0;
+        long nextSince = 0;
+        // Highest level first, so ties go to the higher own priority
+        for (int level = LEVELS - 1; level >= 0; level--) {
+            Waiter head = queues.get(level).peek();
+            if (head == null) {
+                continue;
+            }
+            double effective = level + (agingNanos > 0 ? (double) (now - head.since) / agingNanos : 0);
+            if (next == null || effective > nextPriority
+                    || (effective == nextPriority && head.since < nextSince)) {
+                next = queues.get(level);
+                nextPriority = effective;
+                nextSince = head.since;
+            }
+        }
+        if (next == null) {
+            return null;
+        }
+        size--;
+        return next.poll().task;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Number of waiters per priority, index 0 holding priority 1.
+     */
+    int[] depths() {
+        int[] depths = new int[LEVELS];
+        for (int i = 0; i < LEVELS; i++) {
+            depths[i] = queues.get(i).size();
+        }
+        return depths;
+    }
+
+    private static int level(int priority) {
+        return Math.max(1, Math.min(LEVELS, priority)) - 1;
+    }
+
+    static final class Waiter {
+        private final int priority;
+        private final Runnable task;
+        private final Runnable onShed;
+        private final long since;
+
+        Waiter(int priority, Runnable task, Runnable onShed, long since) {
+            this.priority = priority;
+            this.task = task;
+            this.onShed = onShed;
+            this.since = since;
+        }
+
+        int getPriority() {
+            return priority;
+        }
+
+        Runnable getOnShed() {
+            return onShed;
+        }
+    }
+}
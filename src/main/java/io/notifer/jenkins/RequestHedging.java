@@ -0,0 +1,213 @@
+package io.notifer.jenkins;
+
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hedging of latency-critical requests.
+ *
+ * If a hedged request has not completed within the observed 95th percentile latency, an
+ * identical duplicate (same idempotency key) is sent. The first response wins and the other
+ * exchange is cancelled. Hedges are paid from a budget that accrues a configured percentage
+ * of all requests, so hedging cannot double the load on a slow API.
+ */
+public final class RequestHedging {
+    private static final Logger LOGGER = Logger.getLogger(RequestHedging.class.getName());
+
+    static final int HEDGED_PRIORITY = 5;
+    static final int DEFAULT_BUDGET_PERCENT = 10;
+    /** Latest successful round trips the percentile is computed from */
+    private static final int SAMPLES = 256;
+    /** Don't hedge on a percentile computed from fewer round trips */
+    private static final int MIN_SAMPLES = 20;
+    /** Hedges that may be sent back to back from an accrued budget */
+    private static final double MAX_BUDGET = 10;
+    private static final long MIN_DELAY_MILLIS = 10;
+
+    private static final long[] LATENCIES = new long[SAMPLES];
+    private static int latencyCount;
+    private static int latencyPosition;
+    private static long p95Millis = -1;
+    private static double budget;
+
+    private static final AtomicLong HEDGES_SENT = new AtomicLong();
+    private static final AtomicLong HEDGES_WON = new AtomicLong();
+
+    private RequestHedging() {
+    }
+
+    /**
+     * Send a request, hedging it if enabled and the latency history allows.
+     *
+     * @param hedgeable whether the request is latency-critical enough to be hedged
+     */
+    static <T> CompletableFuture<HttpResponse<T>> send(HttpClient client, HttpRequest request,
+                                                       HttpResponse.BodyHandler<T> handler, boolean hedgeable) {
+        int budgetPercent = budgetPercent();
+        if (budgetPercent > 0) {
+            accrue(budgetPercent);
+        }
+        CompletableFuture<HttpResponse<T>> primary = client.sendAsync(request, handler);
+        long delay = hedgeable && budgetPercent > 0 ? getHedgeDelayMillis() : -1;
+        if (delay < 0) {
+            return primary;
+        }
+
+        CompletableFuture<HttpResponse<T>> winner = new CompletableFuture<>();
+        // Exchanges still running; whichever brings it to 0 fails the winner with the first error
+        AtomicInteger outstanding = new AtomicInteger(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReference<CompletableFuture<HttpResponse<T>>> hedge = new AtomicReference<>();
+        race(primary, winner, outstanding, failure, false);
+
+        ScheduledFuture<?> timer;
+        try {
+            timer = Timer.get().schedule(() -> {
+                if (winner.isDone() || !tryJoin(outstanding)) {
+                    return;
+                }
+                if (!trySpend()) {
+                    // The primary may have failed since joining, then it is up to us to fail the winner
+                    leave(winner, outstanding, failure);
+                    return;
+                }
+                HEDGES_SENT.incrementAndGet();
+                LOGGER.log(Level.FINE, "No response from {0} after {1} ms, sending a hedged request",
+                        new Object[] {request.uri(), delay});
+                CompletableFuture<HttpResponse<T>> second;
+                try {
+                    second = client.sendAsync(request, handler);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    leave(winner, outstanding, failure);
+                    return;
+                }
+                hedge.set(second);
+                race(second, winner, outstanding, failure, true);
+                if (winner.isDone() && !second.isDone()) {
+                    second.cancel(true);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return primary;
+        }
+
+        winner.whenComplete((response, error) -> {
+            timer.cancel(false);
+            primary.cancel(true);
+            CompletableFuture<HttpResponse<T>> second = hedge.get();
+            if (second != null) {
+                second.cancel(true);
+            }
+        });
+        return winner;
+    }
+
+    private static <T> void race(CompletableFuture<HttpResponse<T>> exchange, CompletableFuture<HttpResponse<T>> winner,
+                                 AtomicInteger outstanding, AtomicReference<Throwable> failure, boolean isHedge) {
+        exchange.whenComplete((response, error) -> {
+            if (error == null) {
+                if (winner.complete(response) && isHedge) {
+                    HEDGES_WON.incrementAndGet();
+                }
+            } else {
+                failure.compareAndSet(null, error);
+                leave(winner, outstanding, failure);
+            }
+        });
+    }
+
+    /**
+     * Deregister an exchange that failed or was never sent, failing the winner if it was the last one.
+     */
+    private static <T> void leave(CompletableFuture<HttpResponse<T>> winner, AtomicInteger outstanding,
+                                  AtomicReference<Throwable> failure) {
+        if (outstanding.decrementAndGet() == 0) {
+            winner.completeExceptionally(failure.get());
+        }
+    }
+
+    /**
+     * Register another exchange unless all previous ones already failed.
+     */
+    private static boolean tryJoin(AtomicInteger outstanding) {
+        while (true) {
+            int current = outstanding.get();
+            if (current == 0) {
+                return false;
+            }
+            if (outstanding.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Record the round-trip time of a request that got a response.
+     */
+    static synchronized void recordLatency(long latencyNanos) {
+        LATENCIES[latencyPosition] = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+        latencyPosition = (latencyPosition + 1) % SAMPLES;
+        if (latencyCount < SAMPLES) {
+            latencyCount++;
+        }
+        // Recomputing from the whole window is cheap enough every few samples
+        if (latencyCount >= MIN_SAMPLES && latencyPosition % 16 == 0) {
+            long[] sorted = Arrays.copyOf(LATENCIES, latencyCount);
+            Arrays.sort(sorted);
+            p95Millis = sorted[(int) Math.ceil(latencyCount * 0.95) - 1];
+        }
+    }
+
+    private static synchronized void accrue(int budgetPercent) {
+        budget = Math.min(MAX_BUDGET, budget + budgetPercent / 100.0);
+    }
+
+    private static synchronized boolean trySpend() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    private static int budgetPercent() {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return 0;
+        }
+        NotiferGlobalConfiguration config = NotiferGlobalConfiguration.get();
+        return config.isRequestHedging() ? config.getHedgeBudgetPercent() : 0;
+    }
+
+    /**
+     * Delay after which a request is hedged, or -1 while there is not enough latency history.
+     */
+    public static synchronized long getHedgeDelayMillis() {
+        return p95Millis < 0 ? -1 : Math.max(MIN_DELAY_MILLIS, p95Millis);
+    }
+
+    public static long getHedgesSent() {
+        return HEDGES_SENT.get();
+    }
+
+    /**
+     * Hedged requests that answered before the original one.
+     */
+    public static long getHedgesWon() {
+        return HEDGES_WON.get();
+    }
+}
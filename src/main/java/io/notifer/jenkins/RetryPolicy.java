@@ -0,0 +1,114 @@
+package io.notifer.jenkins;
+
+import jenkins.model.Jenkins;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy for Notifer API requests.
+ *
+ * Uses exponential backoff with full jitter. Connection failures, timeouts and server errors
+ * are retried, client errors are not. On 429 and 503 the server's Retry-After header wins
+ * over the computed backoff.
+ */
+final class RetryPolicy {
+
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+    static final long DEFAULT_INITIAL_DELAY_MILLIS = 500;
+    static final long DEFAULT_MAX_DELAY_MILLIS = 30_000;
+
+    static final RetryPolicy DEFAULT =
+            new RetryPolicy(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+
+    RetryPolicy(int maxAttempts, long initialDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialDelayMillis = Math.max(1, initialDelayMillis);
+        this.maxDelayMillis = Math.max(this.initialDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Policy from the global configuration, or the defaults outside of Jenkins.
+     */
+    static RetryPolicy current() {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return DEFAULT;
+        }
+        return NotiferGlobalConfiguration.get().getRetryPolicy();
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Compute the delay before the next attempt.
+     *
+     * @param attempt Number of the attempt that just failed, starting at 1
+     * @param failure Failure of that attempt
+     * @return Delay in milliseconds, or -1 if the request must not be retried
+     */
+    long nextDelayMillis(int attempt, Throwable failure) {
+        if (attempt >= maxAttempts || !(failure instanceof NotiferClient.NotiferException)
+                || failure instanceof LoadShedding.ShedException) {
+            return -1;
+        }
+
+        NotiferClient.NotiferException e = (NotiferClient.NotiferException) failure;
+        int status = e.getStatusCode();
+        if (!isRetryable(status)) {
+            return -1;
+        }
+
+        if ((status == 429 || status == 503) && e.getRetryAfterMillis() >= 0) {
+            // Do not hammer the server sooner than asked, and give up if it asks for too long
+            return e.getRetryAfterMillis() <= maxDelayMillis ? e.getRetryAfterMillis() : -1;
+        }
+
+        // Full jitter: uniform between 0 and the exponential backoff ceiling
+        long ceiling = initialDelayMillis << Math.min(attempt - 1, 20);
+        ceiling = Math.min(maxDelayMillis, ceiling);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Connection failures (no status code), timeouts, rate limiting and server errors are retryable.
+     */
+    private static boolean isRetryable(int status) {
+        return status < 0 || status == 408 || status == 429 || status >= 500;
+    }
+
+    /**
+     * Parse a Retry-After header given either as delay seconds or as an HTTP date.
+     *
+     * @return Delay in milliseconds, or -1 if the header is absent or invalid
+     */
+    static long parseRetryAfter(HttpHeaders headers) {
+        Optional<String> header = headers.firstValue("Retry-After");
+        if (header.isEmpty()) {
+            return -1;
+        }
+
+        String value = header.get().trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(Instant.now(), date.toInstant()).toMillis());
+            } catch (DateTimeParseException ex) {
+                return -1;
+            }
+        }
+    }
+}
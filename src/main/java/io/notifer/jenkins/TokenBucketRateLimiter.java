@@ -0,0 +1,74 @@
+package io.notifer.jenkins;
+
+import hudson.Util;
+import jenkins.model.Jenkins;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket pacing requests made with one topic token.
+ *
+ * Implemented as a generic cell rate algorithm: the only state is the theoretical arrival time
+ * of the next request, advanced with a compare-and-set. Callers reserve a slot and get back how
+ * long to wait before sending, so pacing can be scheduled on a timer instead of blocking.
+ */
+final class TokenBucketRateLimiter {
+
+    private static final Map<String, TokenBucketRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param permitsPerSecond Sustained rate
+     * @param burst            Number of requests that may be sent back to back after an idle period
+     */
+    TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+    }
+
+    /**
+     * Reserve a slot for a request made with the given topic token.
+     *
+     * @return Delay in milliseconds before the request may be sent, 0 if it may be sent right away
+     */
+    static long reserve(String token) {
+        if (Jenkins.getInstanceOrNull() == null) {
+            return 0;
+        }
+        NotiferGlobalConfiguration config = NotiferGlobalConfiguration.get();
+        double rate = config.getRateLimitPerSecond();
+        if (rate <= 0) {
+            return 0;
+        }
+        // Key by digest so the registry does not keep topic tokens around
+        TokenBucketRateLimiter limiter = LIMITERS.computeIfAbsent(Util.getDigestOf(token),
+                k -> new TokenBucketRateLimiter(rate, config.getRateLimitBurst()));
+        return TimeUnit.NANOSECONDS.toMillis(limiter.reserveNanos());
+    }
+
+    /**
+     * Drop all buckets after the rate settings changed.
+     */
+    static void reset() {
+        LIMITERS.clear();
+    }
+
+    long reserveNanos() {
+        while (true) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrival.get();
+            long start = tat - now > 0 ? tat : now;
+            long next = start + intervalNanos;
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                long wait = start - now - toleranceNanos;
+                return Math.max(0, wait);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.notifer.jenkins;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTest {
+
+    private final Bulkhead bulkhead = new Bulkhead("Test");
+    private final List<String> started = new ArrayList<>();
+
+    @Test
+    void grantsUpToTheLimitThenQueues() {
+        bulkhead.configure(2, 10);
+
+        assertEquals(Bulkhead.Admission.GRANTED, acquire("a"));
+        assertEquals(Bulkhead.Admission.GRANTED, acquire("b"));
+        assertEquals(Bulkhead.Admission.QUEUED, acquire("c"));
+
+        // Granted permits do not go through the callback
+        assertTrue(started.isEmpty());
+        assertEquals(2, bulkhead.getActive());
+        assertEquals(1, bulkhead.getQueued());
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() {
+        bulkhead.configure(1, 1);
+        acquire("a");
+        acquire("b");
+
+        assertEquals(Bulkhead.Admission.REJECTED, acquire("c"));
+        assertEquals(1, bulkhead.getRejected());
+        assertEquals(1, bulkhead.getQueued());
+    }
+
+    @Test
+    void releaseHandsThePermitToTheNextWaiter() {
+        bulkhead.configure(1, 10);
+        acquire("a");
+        acquire(1, "low");
+        acquire(5, "high");
+
+        bulkhead.release();
+
+        assertEquals(List.of("high"), started);
+        assertEquals(1, bulkhead.getActive());
+        bulkhead.release();
+        assertEquals(List.of("high", "low"), started);
+        bulkhead.release();
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    void loweredLimitRetiresPermitsBeforeHandingOff() {
+        bulkhead.configure(3, 10);
+        acquire("a");
+        acquire("b");
+        acquire("c");
+        bulkhead.setMaxConcurrent(1);
+        assertEquals(Bulkhead.Admission.QUEUED, acquire("d"));
+
+        bulkhead.release();
+        bulkhead.release();
+        assertTrue(started.isEmpty());
+        assertEquals(1, bulkhead.getActive());
+
+        bulkhead.release();
+        assertEquals(List.of("d"), started);
+        assertEquals(1, bulkhead.getActive());
+    }
+
+    @Test
+    void raisedLimitAdmitsWaitersRightAway() {
+        bulkhead.configure(1, 10);
+        acquire("a");
+        acquire("b");
+        acquire("c");
+
+        bulkhead.setMaxConcurrent(3);
+
+        assertEquals(List.of("b", "c"), started);
+        assertEquals(3, bulkhead.getActive());
+        assertEquals(0, bulkhead.getQueued());
+        assertEquals(10, bulkhead.getMaxQueued());
+    }
+
+    private Bulkhead.Admission acquire(String name) {
+        return acquire(3, name);
+    }
+
+    private Bulkhead.Admission acquire(int priority, String name) {
+        return bulkhead.acquire(priority, () -> started.add(name), null);
+    }
+}
@@ -0,0 +1,120 @@
+package io.notifer.jenkins;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long LONG_OPEN_MILLIS = 60_000;
+
+    @Test
+    void staysClosedUntilTheWindowIsFull() {
+        CircuitBreaker breaker = breaker(4, 50, LONG_OPEN_MILLIS);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(100, breaker.getFailureRate());
+    }
+
+    @Test
+    void opensOnceTheFailureRateReachesTheThreshold() {
+        CircuitBreaker breaker = breaker(4, 50, LONG_OPEN_MILLIS);
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.isCallPermitted());
+    }
+
+    @Test
+    void slidingWindowForgetsOldFailures() {
+        CircuitBreaker breaker = breaker(4, 75, LONG_OPEN_MILLIS);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onSuccess();
+        // The two failures slide out of the window
+        breaker.onSuccess();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(50, breaker.getFailureRate());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void letsASingleProbeThroughAfterTheOpenDuration() {
+        CircuitBreaker breaker = trippedBreaker(0);
+
+        assertTrue(breaker.isCallPermitted());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Only one probe at a time
+        assertFalse(breaker.isCallPermitted());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void successfulProbeClosesWithAFreshWindow() {
+        CircuitBreaker breaker = trippedBreaker(0);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getWindowCalls());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedProbeOpensAgain() {
+        CircuitBreaker breaker = trippedBreaker(0);
+        assertTrue(breaker.tryAcquire());
+        breaker.configure(2, 50, LONG_OPEN_MILLIS);
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void ignoredProbeFreesTheSlotForAnotherOne() {
+        CircuitBreaker breaker = trippedBreaker(0);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onIgnored();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private static CircuitBreaker trippedBreaker(long openDurationMillis) {
+        CircuitBreaker breaker = breaker(2, 50, openDurationMillis);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static CircuitBreaker breaker(int windowSize, int failureRateThreshold, long openDurationMillis) {
+        // Breakers are shared per endpoint, keep the tests apart
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint("https://" + UUID.randomUUID() + ".test");
+        breaker.configure(windowSize, failureRateThreshold, openDurationMillis);
+        return breaker;
+    }
+}
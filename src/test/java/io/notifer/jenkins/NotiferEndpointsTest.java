@@ -0,0 +1,87 @@
+package io.notifer.jenkins;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NotiferEndpointsTest {
+
+    // Breakers and latencies are shared per URL, keep the tests apart
+    private final String primary = "https://primary-" + UUID.randomUUID() + ".test";
+    private final String secondary = "https://secondary-" + UUID.randomUUID() + ".test";
+    private final String tertiary = "https://tertiary-" + UUID.randomUUID() + ".test";
+
+    @AfterEach
+    void tearDown() {
+        NotiferEndpoints.reconfigure();
+    }
+
+    @Test
+    void singleEndpointIsAlwaysUsed() {
+        NotiferEndpoints.configure(List.of(primary));
+
+        assertEquals(primary, NotiferEndpoints.select(null));
+        assertEquals(primary, NotiferEndpoints.select(primary));
+    }
+
+    @Test
+    void noEndpointsFallsBackToThePublicApi() {
+        assertEquals(List.of(NotiferClient.API_URL), NotiferEndpoints.configure(List.of()));
+    }
+
+    @Test
+    void prefersTheFirstEndpoint() {
+        NotiferEndpoints.configure(List.of(primary, secondary, tertiary));
+
+        assertEquals(primary, NotiferEndpoints.select(null));
+    }
+
+    @Test
+    void retryFailsOverToTheNextEndpoint() {
+        NotiferEndpoints.configure(List.of(primary, secondary, tertiary));
+
+        assertEquals(secondary, NotiferEndpoints.select(primary));
+        assertEquals(primary, NotiferEndpoints.select(secondary));
+    }
+
+    @Test
+    void skipsEndpointsWithAnOpenBreaker() {
+        NotiferEndpoints.configure(List.of(primary, secondary, tertiary));
+        trip(primary);
+
+        assertEquals(secondary, NotiferEndpoints.select(null));
+        assertEquals(tertiary, NotiferEndpoints.select(secondary));
+    }
+
+    @Test
+    void avoidsTheFailedEndpointEvenWhenNothingElseIsHealthy() {
+        NotiferEndpoints.configure(List.of(primary, secondary, tertiary));
+        trip(secondary);
+        trip(tertiary);
+
+        assertEquals(secondary, NotiferEndpoints.select(primary));
+    }
+
+    @Test
+    void skipsEndpointsMuchSlowerThanTheFastest() {
+        NotiferEndpoints.configure(List.of(primary, secondary, tertiary));
+        NotiferEndpoints.recordLatency(primary, TimeUnit.MILLISECONDS.toNanos(500));
+        NotiferEndpoints.recordLatency(secondary, TimeUnit.MILLISECONDS.toNanos(150));
+        NotiferEndpoints.recordLatency(tertiary, TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertEquals(secondary, NotiferEndpoints.select(null));
+        assertEquals(tertiary, NotiferEndpoints.select(secondary));
+    }
+
+    private static void trip(String url) {
+        CircuitBreaker breaker = CircuitBreaker.forEndpoint(url);
+        breaker.configure(2, 50, TimeUnit.MINUTES.toMillis(1));
+        breaker.onFailure();
+        breaker.onFailure();
+    }
+}
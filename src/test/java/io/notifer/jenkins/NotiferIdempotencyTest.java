@@ -0,0 +1,62 @@
+package io.notifer.jenkins;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class NotiferIdempotencyTest {
+
+    @Test
+    void secondClaimGetsTheSendInFlight() {
+        String key = newKey();
+        CompletableFuture<NotiferClient.NotiferResponse> first = new CompletableFuture<>();
+
+        assertNull(NotiferIdempotency.claim(key, first));
+        assertSame(first, NotiferIdempotency.claim(key, new CompletableFuture<>()));
+    }
+
+    @Test
+    void deliveredKeyIsAnsweredWithTheEarlierResult() {
+        String key = newKey();
+        CompletableFuture<NotiferClient.NotiferResponse> first = new CompletableFuture<>();
+        NotiferIdempotency.claim(key, first);
+
+        first.complete(new NotiferClient.NotiferResponse("msg-1"));
+
+        assertSame(first, NotiferIdempotency.claim(key, new CompletableFuture<>()));
+    }
+
+    @Test
+    void failedSendReleasesTheKey() {
+        String key = newKey();
+        CompletableFuture<NotiferClient.NotiferResponse> first = new CompletableFuture<>();
+        NotiferIdempotency.claim(key, first);
+
+        first.completeExceptionally(new NotiferClient.NotiferException("Refused", new IOException()));
+
+        CompletableFuture<NotiferClient.NotiferResponse> retry = new CompletableFuture<>();
+        assertNull(NotiferIdempotency.claim(key, retry));
+        assertSame(retry, NotiferIdempotency.claim(key, new CompletableFuture<>()));
+    }
+
+    @Test
+    void oldestKeysAreEvictedOverTheLimit() {
+        String key = newKey();
+        NotiferIdempotency.claim(key, CompletableFuture.completedFuture(new NotiferClient.NotiferResponse("msg-1")));
+
+        for (int i = 0; i < NotiferIdempotency.MAX_ENTRIES; i++) {
+            NotiferIdempotency.claim(newKey(), new CompletableFuture<>());
+        }
+
+        assertNull(NotiferIdempotency.claim(key, new CompletableFuture<>()));
+    }
+
+    private static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,147 @@
+package io.notifer.jenkins;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotiferOutboxTest {
+
+    /** Small enough that every record gets a segment of its own */
+    private static final long SEGMENT_BYTES = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayKeepsUnacknowledgedNotifications() throws IOException {
+        try (OutboxJournal journal = new FileOutboxJournal(directory, SEGMENT_BYTES)) {
+            enqueue(journal, 1);
+            enqueue(journal, 2);
+            acknowledge(journal, 1);
+        }
+
+        try (OutboxJournal journal = new FileOutboxJournal(directory, SEGMENT_BYTES)) {
+            assertEquals(1, NotiferOutbox.open(journal).getPendingCount());
+        }
+    }
+
+    @Test
+    void replayDeletesFullyAcknowledgedPrefix() throws IOException {
+        List<Long> written;
+        try (OutboxJournal journal = new FileOutboxJournal(directory, SEGMENT_BYTES)) {
+            enqueue(journal, 1);
+            enqueue(journal, 2);
+            enqueue(journal, 3);
+            acknowledge(journal, 1);
+            acknowledge(journal, 3);
+            written = journal.segments();
+        }
+
+        try (OutboxJournal journal = new FileOutboxJournal(directory, SEGMENT_BYTES)) {
+            NotiferOutbox outbox = NotiferOutbox.open(journal);
+
+            assertEquals(1, outbox.getPendingCount());
+            // Notification 1's segment is gone; 2 is pending, so it and everything after it stays
+            assertFalse(Files.exists(journal.segmentPath(written.get(0))));
+            for (long segment : written.subList(1, written.size())) {
+                assertTrue(Files.exists(journal.segmentPath(segment)), "segment " + segment);
+            }
+        }
+    }
+
+    @Test
+    void replayDeletesEverythingOnceAllAreAcknowledged() throws IOException {
+        try (OutboxJournal journal = new FileOutboxJournal(directory, SEGMENT_BYTES)) {
+            enqueue(journal, 1);
+            enqueue(journal, 2);
+            acknowledge(journal, 2);
+            acknowledge(journal, 1);
+        }
+
+        try (OutboxJournal journal = new FileOutboxJournal(directory, SEGMENT_BYTES)) {
+            NotiferOutbox outbox = NotiferOutbox.open(journal);
+
+            assertEquals(0, outbox.getPendingCount());
+            // Only the new, empty active segment is left
+            assertEquals(List.of(journal.activeSegment()), journal.segments());
+        }
+    }
+
+    @Test
+    void replayIgnoresTornTail() throws IOException {
+        Path segment;
+        try (OutboxJournal journal = new FileOutboxJournal(directory, 4096)) {
+            enqueue(journal, 1);
+            enqueue(journal, 2);
+            segment = journal.segmentPath(journal.activeSegment());
+        }
+        // Start of a record that was never completed
+        Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        try (OutboxJournal journal = new FileOutboxJournal(directory, 4096)) {
+            assertEquals(2, NotiferOutbox.open(journal).getPendingCount());
+        }
+    }
+
+    @Test
+    void notificationsWrittenWithFileBackendReplayWithMappedBackend() throws IOException {
+        try (OutboxJournal journal = new FileOutboxJournal(directory, SEGMENT_BYTES)) {
+            enqueue(journal, 1);
+            enqueue(journal, 2);
+            acknowledge(journal, 1);
+        }
+
+        OutboxJournal journal = new MappedOutboxJournal(directory, SEGMENT_BYTES, 1000, 1);
+        try {
+            NotiferOutbox outbox = NotiferOutbox.open(journal);
+            assertEquals(1, outbox.getPendingCount());
+
+            // New records continue after the old segments
+            enqueue(journal, 3);
+            acknowledge(journal, 2);
+        } finally {
+            journal.close();
+        }
+
+        try (OutboxJournal reopened = new FileOutboxJournal(directory, SEGMENT_BYTES)) {
+            assertEquals(1, NotiferOutbox.open(reopened).getPendingCount());
+        }
+    }
+
+    @Test
+    void notificationsWrittenWithMappedBackendReplayWithFileBackend() throws IOException {
+        OutboxJournal mapped = new MappedOutboxJournal(directory, 4096, 1000, 1);
+        try {
+            enqueue(mapped, 1);
+            enqueue(mapped, 2);
+            enqueue(mapped, 3);
+            acknowledge(mapped, 2);
+        } finally {
+            mapped.close();
+        }
+
+        try (OutboxJournal journal = new FileOutboxJournal(directory, 4096)) {
+            assertEquals(2, NotiferOutbox.open(journal).getPendingCount());
+        }
+    }
+
+    private static void enqueue(OutboxJournal journal, long sequence) throws IOException {
+        String json = "{\"topic\":\"builds\",\"message\":\"m" + sequence + "\",\"priority\":3,\"enqueuedAt\":"
+                + System.currentTimeMillis() + "}";
+        journal.append(NotiferOutbox.record(NotiferOutbox.ENQUEUE, sequence, json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void acknowledge(OutboxJournal journal, long sequence) throws IOException {
+        journal.append(NotiferOutbox.record(NotiferOutbox.ACK, sequence, new byte[0]));
+    }
+}
@@ -0,0 +1,111 @@
+package io.notifer.jenkins;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotiferPayloadWriterTest {
+
+    private static final Gson GSON = new Gson();
+
+    @Test
+    void writesAllFields() {
+        JsonObject json = parse(NotiferPayloadWriter.write("Build passed", "CI", 4, List.of("jenkins", "success")));
+
+        assertEquals("Build passed", json.get("message").getAsString());
+        assertEquals("CI", json.get("title").getAsString());
+        assertEquals(4, json.get("priority").getAsInt());
+        JsonArray tags = json.getAsJsonArray("tags");
+        assertEquals(2, tags.size());
+        assertEquals("jenkins", tags.get(0).getAsString());
+        assertEquals("success", tags.get(1).getAsString());
+    }
+
+    @Test
+    void omitsEmptyOptionalFields() {
+        JsonObject json = parse(NotiferPayloadWriter.write("m", "", 3, List.of()));
+
+        assertFalse(json.has("title"));
+        assertFalse(json.has("tags"));
+        assertEquals(3, json.get("priority").getAsInt());
+    }
+
+    @Test
+    void clampsPriority() {
+        assertEquals(1, parse(NotiferPayloadWriter.write("m", null, 0, null)).get("priority").getAsInt());
+        assertEquals(5, parse(NotiferPayloadWriter.write("m", null, 9, null)).get("priority").getAsInt());
+    }
+
+    @Test
+    void escapesQuotesAndBackslashes() {
+        assertRoundTrip("say \"hi\" to C:\\temp\\");
+    }
+
+    @Test
+    void escapesControlCharacters() {
+        StringBuilder controls = new StringBuilder();
+        for (char c = 0; c < 0x20; c++) {
+            controls.append(c);
+        }
+        controls.append('\u007f');
+        assertRoundTrip(controls.toString());
+    }
+
+    @Test
+    void escapesLineAndParagraphSeparators() {
+        String value = "line\u2028paragraph\u2029end";
+        byte[] payload = NotiferPayloadWriter.write(value, null, 3, null);
+
+        assertTrue(new String(payload, StandardCharsets.UTF_8).contains("\\u2028"));
+        assertTrue(new String(payload, StandardCharsets.UTF_8).contains("\\u2029"));
+        assertEquals(value, parse(payload).get("message").getAsString());
+    }
+
+    @Test
+    void encodesMultiByteAndNonBmpCharacters() {
+        assertRoundTrip("caf\u00e9 \u65e5\u672c \ud83d\ude80 \ud834\udd1e");
+    }
+
+    @Test
+    void replacesLoneSurrogates() {
+        // Same replacement as the String.getBytes path the writer replaced
+        String value = "a\ud83db\ude80c\ud83d";
+        JsonObject json = parse(NotiferPayloadWriter.write(value, null, 3, null));
+
+        assertEquals("a?b?c?", json.get("message").getAsString());
+        assertEquals(new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+                json.get("message").getAsString());
+    }
+
+    @Test
+    void matchesGsonForLargeMessages() {
+        char[] chars = new char[100_000];
+        Arrays.fill(chars, '\u00e9');
+        String message = new String(chars);
+
+        assertRoundTrip(message);
+        // A buffer grown this far is not kept, the next payload still encodes correctly
+        assertRoundTrip("small");
+    }
+
+    private static void assertRoundTrip(String value) {
+        JsonObject json = parse(NotiferPayloadWriter.write(value, value, 3, List.of(value)));
+
+        assertEquals(value, json.get("message").getAsString());
+        assertEquals(value, json.get("title").getAsString());
+        assertEquals(value, json.getAsJsonArray("tags").get(0).getAsString());
+    }
+
+    private static JsonObject parse(byte[] payload) {
+        return GSON.fromJson(new String(payload, StandardCharsets.UTF_8), JsonObject.class);
+    }
+}
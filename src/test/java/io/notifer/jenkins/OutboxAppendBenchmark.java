@@ -0,0 +1,85 @@
+package io.notifer.jenkins;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Latency of appending one outbox record with each journal backend, against a plain
+ * {@link FileOutputStream} append with and without a sync per record.
+ */
+@State(Scope.Thread)
+public class OutboxAppendBenchmark {
+
+    private static final long SEGMENT_BYTES = NotiferOutbox.SEGMENT_BYTES;
+
+    @Param({"256", "2048"})
+    public int recordBytes;
+
+    private byte[] record;
+    private Path directory;
+    private FileOutputStream stream;
+    private OutboxJournal fileJournal;
+    private OutboxJournal mappedJournal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder json = new StringBuilder("{\"topic\":\"builds\",\"message\":\"");
+        while (json.length() < recordBytes - 2) {
+            json.append('x');
+        }
+        json.append("\"}");
+        record = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        directory = Files.createTempDirectory("notifer-outbox-benchmark");
+        stream = new FileOutputStream(directory.resolve("plain.log").toFile(), true);
+        fileJournal = new FileOutboxJournal(directory.resolve("file"), SEGMENT_BYTES);
+        // Default group commit settings of the outbox
+        mappedJournal = new MappedOutboxJournal(directory.resolve("mapped"), SEGMENT_BYTES, 100, 64);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        stream.close();
+        fileJournal.close();
+        mappedJournal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void fileOutputStream() throws IOException {
+        stream.write(record);
+    }
+
+    @Benchmark
+    public void fileOutputStreamSynced() throws IOException {
+        stream.write(record);
+        stream.getFD().sync();
+    }
+
+    @Benchmark
+    public long fileJournal() throws IOException {
+        return fileJournal.append(record);
+    }
+
+    @Benchmark
+    public long mappedJournal() throws IOException {
+        return mappedJournal.append(record);
+    }
+}
@@ -0,0 +1,192 @@
+package io.notifer.jenkins;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxJournalTest {
+
+    private static final long SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void fileJournalReplaysRecordsInOrder() throws IOException {
+        OutboxJournal journal = file();
+        append(journal, "one", "two", "three");
+        journal.close();
+
+        assertEquals(List.of("one", "two", "three"), readAll(journal));
+    }
+
+    @Test
+    void mappedJournalReplaysUntilZeroFill() throws IOException {
+        OutboxJournal journal = mapped(SEGMENT_BYTES);
+        append(journal, "one", "two", "three");
+        journal.close();
+
+        List<Long> segments = journal.segments();
+        assertEquals(1, segments.size());
+        // Pre-allocated, the unused rest of the segment is zero and ends the replay
+        assertEquals(SEGMENT_BYTES, Files.size(journal.segmentPath(segments.get(0))));
+        assertEquals(List.of("one", "two", "three"), readAll(journal));
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        OutboxJournal journal = file();
+        append(journal, "one", "two", "three");
+        journal.close();
+        Path segment = journal.segmentPath(journal.activeSegment());
+        truncate(segment, Files.size(segment) - 2);
+
+        assertEquals(List.of("one", "two"), readAll(journal));
+    }
+
+    @Test
+    void tornHeaderIsIgnored() throws IOException {
+        OutboxJournal journal = file();
+        append(journal, "one", "two");
+        journal.close();
+        Path segment = journal.segmentPath(journal.activeSegment());
+        truncate(segment, Files.size(segment) - "two".length() - OutboxJournal.HEADER_BYTES + 3);
+
+        assertEquals(List.of("one"), readAll(journal));
+    }
+
+    @Test
+    void corruptRecordEndsReplayOfItsSegment() throws IOException {
+        OutboxJournal journal = file();
+        append(journal, "one", "two", "three");
+        journal.close();
+        Path segment = journal.segmentPath(journal.activeSegment());
+        // Flip a byte in the body of the second record
+        long offset = OutboxJournal.HEADER_BYTES + "one".length() + OutboxJournal.HEADER_BYTES;
+        try (RandomAccessFile raf = new RandomAccessFile(segment.toFile(), "rw")) {
+            raf.seek(offset);
+            int b = raf.read();
+            raf.seek(offset);
+            raf.write(b ^ 0x01);
+        }
+
+        assertEquals(List.of("one"), readAll(journal));
+    }
+
+    @Test
+    void corruptMappedRecordEndsReplayOfItsSegment() throws IOException {
+        OutboxJournal journal = mapped(SEGMENT_BYTES);
+        append(journal, "one", "two");
+        journal.close();
+        Path segment = journal.segmentPath(journal.activeSegment());
+        // Change the checksum of the second record
+        try (RandomAccessFile raf = new RandomAccessFile(segment.toFile(), "rw")) {
+            raf.seek(OutboxJournal.HEADER_BYTES + "one".length() + Integer.BYTES);
+            raf.writeInt(0);
+        }
+
+        assertEquals(List.of("one"), readAll(journal));
+    }
+
+    @Test
+    void reopenedJournalNeverAppendsToAnExistingSegment() throws IOException {
+        OutboxJournal first = file();
+        append(first, "one");
+        first.close();
+        Path segment = first.segmentPath(first.activeSegment());
+        truncate(segment, Files.size(segment) - 1);
+
+        OutboxJournal second = file();
+        assertTrue(second.activeSegment() > first.activeSegment());
+        append(second, "two");
+        second.close();
+        // The torn record stays torn, the new one is intact in its own segment
+        assertEquals(List.of("two"), readAll(second));
+    }
+
+    @Test
+    void mappedJournalRollsOverAndDeletesRetiredSegments() throws IOException {
+        OutboxJournal journal = mapped(64);
+        List<String> written = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            written.add("record-" + i + "-padding-to-fill-a-segment");
+        }
+        append(journal, written.toArray(new String[0]));
+
+        List<Long> segments = journal.segments();
+        assertEquals(10, segments.size());
+        assertEquals(written, readAll(journal));
+
+        // Retired segments are unmapped, so they can be deleted while the journal is open
+        for (long segment : segments.subList(0, segments.size() - 1)) {
+            journal.delete(segment);
+            assertFalse(Files.exists(journal.segmentPath(segment)));
+        }
+        append(journal, "after");
+        journal.close();
+        assertEquals(List.of(written.get(written.size() - 1), "after"), readAll(journal));
+    }
+
+    @Test
+    void switchingFromFileToMappedKeepsExistingRecords() throws IOException {
+        try (OutboxJournal journal = file()) {
+            append(journal, "one", "two");
+        }
+        OutboxJournal journal = mapped(SEGMENT_BYTES);
+        append(journal, "three");
+        journal.close();
+
+        assertEquals(List.of("one", "two", "three"), readAll(journal));
+    }
+
+    @Test
+    void switchingFromMappedToFileKeepsExistingRecords() throws IOException {
+        OutboxJournal mapped = mapped(SEGMENT_BYTES);
+        append(mapped, "one", "two");
+        mapped.close();
+        OutboxJournal journal = file();
+        append(journal, "three");
+        journal.close();
+
+        assertEquals(List.of("one", "two", "three"), readAll(journal));
+    }
+
+    private OutboxJournal file() throws IOException {
+        return new FileOutboxJournal(directory, SEGMENT_BYTES);
+    }
+
+    private OutboxJournal mapped(long segmentBytes) throws IOException {
+        return new MappedOutboxJournal(directory, segmentBytes, 1000, 2);
+    }
+
+    private static void append(OutboxJournal journal, String... bodies) throws IOException {
+        for (String body : bodies) {
+            journal.append(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static List<String> readAll(OutboxJournal journal) throws IOException {
+        List<String> records = new ArrayList<>();
+        for (long segment : journal.segments()) {
+            journal.read(segment, body -> records.add(new String(body, StandardCharsets.UTF_8)));
+        }
+        return records;
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.notifer.jenkins;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares {@link NotiferPayloadWriter} with the HashMap and Gson path it replaced.
+ */
+@State(Scope.Benchmark)
+public class PayloadEncodingBenchmark {
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    @Param({"64", "1024", "16384"})
+    public int messageLength;
+
+    private String message;
+    private final String title = "[FAILURE] backend-service #1234";
+    private final List<String> tags = List.of("failure", "jenkins", "backend", "deploy");
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder(messageLength);
+        String line = "Build #1234 FAILURE\nJob: folder/backend-service – \"main\"\n";
+        while (sb.length() < messageLength) {
+            sb.append(line);
+        }
+        sb.setLength(messageLength);
+        message = sb.toString();
+    }
+
+    @Benchmark
+    public byte[] gsonMap() {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("message", message);
+        if (title != null && !title.isEmpty()) {
+            payload.put("title", title);
+        }
+        payload.put("priority", 5);
+        if (tags != null && !tags.isEmpty()) {
+            payload.put("tags", tags);
+        }
+        return GSON.toJson(payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] payloadWriter() {
+        return NotiferPayloadWriter.write(message, title, 5, tags);
+    }
+}
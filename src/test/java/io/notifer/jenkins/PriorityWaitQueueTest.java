@@ -0,0 +1,113 @@
+package io.notifer.jenkins;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PriorityWaitQueueTest {
+
+    private final PriorityWaitQueue queue = new PriorityWaitQueue();
+    private final List<String> ran = new ArrayList<>();
+
+    @Test
+    void pollsHighestPriorityFirstAndFifoWithinAPriority() {
+        queue.setAgingMillis(0);
+        add(3, "a");
+        add(5, "b");
+        add(1, "c");
+        add(5, "d");
+        add(3, "e");
+
+        drain();
+
+        assertEquals(List.of("b", "d", "a", "e", "c"), ran);
+        assertEquals(0, queue.size());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void clampsOutOfRangePriorities() {
+        add(0, "low");
+        add(9, "high");
+
+        assertArrayEquals(new int[] {1, 0, 0, 0, 1}, queue.depths());
+    }
+
+    @Test
+    void agingLetsLongWaitersOvertakeHigherPriorities() throws InterruptedException {
+        queue.setAgingMillis(10);
+        add(1, "old");
+        // Several aging intervals, enough to climb past priority 5
+        Thread.sleep(100);
+        add(5, "new");
+
+        drain();
+
+        assertEquals(List.of("old", "new"), ran);
+    }
+
+    @Test
+    void strictOrderWithoutAging() throws InterruptedException {
+        queue.setAgingMillis(0);
+        add(1, "old");
+        Thread.sleep(20);
+        add(5, "new");
+
+        drain();
+
+        assertEquals(List.of("new", "old"), ran);
+    }
+
+    @Test
+    void evictsTheOldestSheddableWaiterUpToAPriority() throws InterruptedException {
+        add(4, "four");
+        Thread.sleep(2);
+        add(2, "two");
+        Thread.sleep(2);
+        add(1, "one");
+
+        PriorityWaitQueue.Waiter evicted = queue.evictOldest(3);
+
+        assertEquals(2, evicted.getPriority());
+        evicted.getOnShed().run();
+        assertEquals(List.of("shed two"), ran);
+        assertArrayEquals(new int[] {1, 0, 0, 1, 0}, queue.depths());
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void neverEvictsUnsheddableWaiters() {
+        queue.add(1, () -> ran.add("kept"), null);
+        add(1, "sheddable");
+
+        assertEquals(1, queue.evictOldest(5).getPriority());
+        assertNull(queue.evictOldest(5));
+        assertEquals(1, queue.size());
+        drain();
+        assertEquals(List.of("kept"), ran);
+    }
+
+    @Test
+    void evictsNothingAboveTheGivenPriority() {
+        add(5, "high");
+
+        assertNull(queue.evictOldest(4));
+        assertEquals(1, queue.size());
+    }
+
+    private void add(int priority, String name) {
+        queue.add(priority, () -> ran.add(name), () -> ran.add("shed " + name));
+    }
+
+    private void drain() {
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            task.run();
+        }
+    }
+}
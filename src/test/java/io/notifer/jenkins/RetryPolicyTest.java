@@ -0,0 +1,92 @@
+package io.notifer.jenkins;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(5, 100, 1_000);
+
+    @Test
+    void backoffStaysWithinTheExponentialCeiling() {
+        NotiferClient.NotiferException failure = new NotiferClient.NotiferException("Bad gateway", 502);
+        for (int attempt = 1; attempt < 5; attempt++) {
+            long ceiling = Math.min(1_000, 100L << (attempt - 1));
+            for (int i = 0; i < 200; i++) {
+                long delay = policy.nextDelayMillis(attempt, failure);
+                assertTrue(delay >= 0 && delay <= ceiling, "attempt " + attempt + " delay " + delay);
+            }
+        }
+    }
+
+    @Test
+    void backoffIsCappedAtTheMaximumDelay() {
+        RetryPolicy longPolicy = new RetryPolicy(100, 100, 1_000);
+        NotiferClient.NotiferException failure = new NotiferClient.NotiferException("Unavailable", 500);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(longPolicy.nextDelayMillis(60, failure) <= 1_000);
+        }
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() {
+        assertEquals(-1, policy.nextDelayMillis(5, new NotiferClient.NotiferException("Bad gateway", 502)));
+    }
+
+    @Test
+    void retriesOnlyTransientFailures() {
+        assertTrue(policy.nextDelayMillis(1, new NotiferClient.NotiferException("Refused", new IOException())) >= 0);
+        assertTrue(policy.nextDelayMillis(1, new NotiferClient.NotiferException("Timeout", 408)) >= 0);
+        assertEquals(-1, policy.nextDelayMillis(1, new NotiferClient.NotiferException("Bad request", 400)));
+        assertEquals(-1, policy.nextDelayMillis(1, new NotiferClient.NotiferException("Forbidden", 403)));
+        assertEquals(-1, policy.nextDelayMillis(1, new LoadShedding.ShedException("Shed")));
+        assertEquals(-1, policy.nextDelayMillis(1, new IllegalStateException()));
+    }
+
+    @Test
+    void retryAfterOverridesTheBackoff() {
+        assertEquals(750, policy.nextDelayMillis(1, new NotiferClient.NotiferException("Slow down", 429, 750)));
+        assertEquals(0, policy.nextDelayMillis(1, new NotiferClient.NotiferException("Unavailable", 503, 0)));
+        // Longer than the policy is willing to wait
+        assertEquals(-1, policy.nextDelayMillis(1, new NotiferClient.NotiferException("Slow down", 429, 5_000)));
+    }
+
+    @Test
+    void parsesRetryAfterSeconds() {
+        assertEquals(120_000, RetryPolicy.parseRetryAfter(headers("120")));
+        assertEquals(3_000, RetryPolicy.parseRetryAfter(headers(" 3 ")));
+        assertEquals(0, RetryPolicy.parseRetryAfter(headers("-5")));
+    }
+
+    @Test
+    void parsesRetryAfterHttpDate() {
+        ZonedDateTime date = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60);
+        long delay = RetryPolicy.parseRetryAfter(headers(DateTimeFormatter.RFC_1123_DATE_TIME.format(date)));
+        // The header has second precision
+        assertTrue(delay > 55_000 && delay <= 60_000, "delay " + delay);
+
+        String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(date.minusHours(1));
+        assertEquals(0, RetryPolicy.parseRetryAfter(headers(past)));
+    }
+
+    @Test
+    void ignoresMissingOrInvalidRetryAfter() {
+        assertEquals(-1, RetryPolicy.parseRetryAfter(HttpHeaders.of(Map.of(), (name, value) -> true)));
+        assertEquals(-1, RetryPolicy.parseRetryAfter(headers("soon")));
+        assertEquals(-1, RetryPolicy.parseRetryAfter(headers("1.5")));
+    }
+
+    private static HttpHeaders headers(String retryAfter) {
+        return HttpHeaders.of(Map.of("Retry-After", List.of(retryAfter)), (name, value) -> true);
+    }
+}
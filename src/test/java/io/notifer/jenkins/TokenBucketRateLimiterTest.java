@@ -0,0 +1,68 @@
+package io.notifer.jenkins;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketRateLimiterTest {
+
+    private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Slack for the time spent between two reservations
+    private static final long SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    void allowsABurstRightAway() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 3);
+
+        assertEquals(0, limiter.reserveNanos());
+        assertEquals(0, limiter.reserveNanos());
+        assertEquals(0, limiter.reserveNanos());
+    }
+
+    @Test
+    void pacesRequestsBeyondTheBurst() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 3);
+        for (int i = 0; i < 3; i++) {
+            limiter.reserveNanos();
+        }
+
+        for (int i = 1; i <= 3; i++) {
+            long wait = limiter.reserveNanos();
+            long expected = i * INTERVAL_NANOS;
+            assertTrue(wait > expected - SLACK_NANOS && wait <= expected, "request " + i + " waits " + wait);
+        }
+    }
+
+    @Test
+    void burstOfOnePacesEveryRequest() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1);
+
+        assertEquals(0, limiter.reserveNanos());
+        long wait = limiter.reserveNanos();
+        assertTrue(wait > INTERVAL_NANOS - SLACK_NANOS && wait <= INTERVAL_NANOS, "waits " + wait);
+    }
+
+    @Test
+    void refillsWhileIdle() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(100, 2);
+        for (int i = 0; i < 5; i++) {
+            limiter.reserveNanos();
+        }
+        assertTrue(limiter.reserveNanos() > 0);
+
+        // Long enough for the backlog to drain and the burst to come back
+        Thread.sleep(200);
+
+        assertEquals(0, limiter.reserveNanos());
+        assertEquals(0, limiter.reserveNanos());
+        assertTrue(limiter.reserveNanos() > 0);
+    }
+
+    @Test
+    void reserveOutsideJenkinsIsNotLimited() {
+        assertEquals(0, TokenBucketRateLimiter.reserve("tk_test"));
+    }
+}